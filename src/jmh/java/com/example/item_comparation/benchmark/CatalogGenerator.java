@@ -0,0 +1,58 @@
+package com.example.item_comparation.benchmark;
+
+import com.example.item_comparation.domain.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+// Deterministic catalogs shaped like src/main/resources/products.json
+final class CatalogGenerator {
+
+    private static final String[] CLASSIFICATIONS = {"Eletrônicos", "Móveis", "Esportes", "Livros"};
+
+    private CatalogGenerator() {
+    }
+
+    static List<Product> products(int count, boolean withIds) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Product product = new Product();
+            if (withIds) {
+                product.setId((long) i);
+            }
+            product.setName("Produto " + i);
+            product.setImageUrl("https://example.com/images/produto-" + i + ".jpg");
+            product.setDescription("Descrição do produto " + i + " com detalhes técnicos");
+            product.setPrice(BigDecimal.valueOf(1000 + i * 37L, 2));
+            product.setClassification(CLASSIFICATIONS[i % CLASSIFICATIONS.length]);
+            product.setSpecifications("Cor: Preto, Peso: " + (i % 50) + "kg, Garantia: 12 meses");
+            products.add(product);
+        }
+        return products;
+    }
+
+    static byte[] json(int count) throws JsonProcessingException {
+        return new ObjectMapper().writeValueAsBytes(products(count, true));
+    }
+
+    // Ids spread across the catalog, e.g. "17,4021,8025"
+    static String csv(int idCount, int catalogSize) {
+        StringJoiner joiner = new StringJoiner(",");
+        for (long id : ids(idCount, catalogSize)) {
+            joiner.add(Long.toString(id));
+        }
+        return joiner.toString();
+    }
+
+    static long[] ids(int idCount, int catalogSize) {
+        long[] ids = new long[idCount];
+        for (int i = 0; i < idCount; i++) {
+            ids[i] = 1 + (i * 7919L) % catalogSize;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.item_comparation.benchmark;
+
+import com.example.item_comparation.util.CsvIdParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CsvIdParserBenchmark {
+
+    @Param({"2", "10", "50"})
+    int idCount;
+
+    private CsvIdParser parser;
+    private String csv;
+
+    @Setup
+    public void setUp() {
+        parser = new CsvIdParser();
+        csv = CatalogGenerator.csv(idCount, 1_000_000);
+    }
+
+    @Benchmark
+    public List<Long> parseToLongList() {
+        return parser.parseToLongList(csv);
+    }
+
+    @Benchmark
+    public long[] parseToLongArray() {
+        return parser.parseToLongArray(csv);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.item_comparation.benchmark;
+
+import com.example.item_comparation.repository.DataLoader;
+import com.example.item_comparation.repository.ProductCatalogReader;
+import com.example.item_comparation.service.ProductsService;
+import com.example.item_comparation.util.CsvIdParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DataLoaderBenchmark {
+
+    @Param({"1000", "100000"})
+    int catalogSize;
+
+    private byte[] catalog;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() throws Exception {
+        catalog = CatalogGenerator.json(catalogSize);
+        objectMapper = new ObjectMapper();
+    }
+
+    // Parsing alone: products are handed to a blackhole batch by batch
+    @Benchmark
+    public long parseCatalog(Blackhole blackhole) throws Exception {
+        ProductCatalogReader reader = new ProductCatalogReader(objectMapper, 1000);
+        return reader.read(new ByteArrayInputStream(catalog), blackhole::consume);
+    }
+
+    // Full startup path: parse and store into a fresh service
+    @Benchmark
+    public ProductsService loadCatalog() throws Exception {
+        ProductsService service = new ProductsService(new CsvIdParser());
+        new DataLoader(service, new ByteArrayResource(catalog), 1000).run();
+        return service;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.item_comparation.benchmark;
+
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.exception.BadRequestException;
+import com.example.item_comparation.exception.ErrorResponse;
+import com.example.item_comparation.exception.GlobalHandlerController;
+import com.example.item_comparation.exception.ProductNotFoundException;
+import com.example.item_comparation.service.ProductsService;
+import com.example.item_comparation.util.CsvIdParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// A compare call from the service to the ResponseEntity the controller or its advice hands to Spring: the 200 with the
+// products against a 404 for a missing id and a 400 for a malformed one. stackTrace404 rebuilds the old miss, an
+// exception with a filled stack trace and a LocalDateTime.now() body, as the reference the stackless path is
+// measured against. Serialization is left out, it costs the same for every status.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ErrorPathBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+
+    private ProductsService service;
+    private GlobalHandlerController handler;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        service = new ProductsService(new CsvIdParser());
+        service.saveAll(CatalogGenerator.products(CATALOG_SIZE, true));
+        handler = new GlobalHandlerController();
+        request = new MockHttpServletRequest("GET", "/products/compare/1,2,3");
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Product>> found200() {
+        return ResponseEntity.ok(service.compareFromCsv("1,2,3"));
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> notFound404() {
+        try {
+            service.compareFromCsv("1,2,99999");
+            throw new IllegalStateException("expected a missing product");
+        } catch (ProductNotFoundException exception) {
+            return handler.handleProductNotFound(exception, request);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> invalid400() {
+        try {
+            service.compareFromCsv("1,2,x");
+            throw new IllegalStateException("expected invalid ids");
+        } catch (BadRequestException exception) {
+            return handler.handleBadRequest(exception, request);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> stackTrace404() {
+        try {
+            service.compareFromCsv("1,2,99999");
+            throw new IllegalStateException("expected a missing product");
+        } catch (ProductNotFoundException exception) {
+            RuntimeException withStackTrace = new RuntimeException("Product with ID " + 99999 + " not found.");
+            ErrorResponse body = new ErrorResponse(LocalDateTime.now(), HttpStatus.NOT_FOUND.value(),
+                    HttpStatus.NOT_FOUND.getReasonPhrase(), withStackTrace.getMessage(), request.getRequestURI());
+            return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.item_comparation.benchmark;
+
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.service.ProductsService;
+import com.example.item_comparation.util.CsvIdParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductsServiceBenchmark {
+
+    private static final int CATALOG_SIZE = 100_000;
+
+    @Param({"2", "10", "50"})
+    int idCount;
+
+    private ProductsService service;
+    private long[] ids;
+    private String csv;
+    private long nextId;
+
+    @Setup
+    public void setUp() {
+        service = new ProductsService(new CsvIdParser());
+        service.saveAll(CatalogGenerator.products(CATALOG_SIZE, true));
+        ids = CatalogGenerator.ids(idCount, CATALOG_SIZE);
+        csv = CatalogGenerator.csv(idCount, CATALOG_SIZE);
+    }
+
+    @Benchmark
+    public Product getProductById() {
+        nextId = nextId % CATALOG_SIZE + 1;
+        return service.getProductById(nextId);
+    }
+
+    @Benchmark
+    public List<Product> compare() {
+        return service.compare(ids);
+    }
+
+    @Benchmark
+    public List<Product> compareFromCsv() {
+        return service.compareFromCsv(csv);
+    }
+}
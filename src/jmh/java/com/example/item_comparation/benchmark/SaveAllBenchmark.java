@@ -0,0 +1,48 @@
+package com.example.item_comparation.benchmark;
+
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.service.ProductsService;
+import com.example.item_comparation.util.CsvIdParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Each invocation imports the whole catalog into an empty service; products carry no id, so ids are allocated
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SaveAllBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int catalogSize;
+
+    private List<Product> products;
+    private ProductsService service;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        products = CatalogGenerator.products(catalogSize, false);
+        service = new ProductsService(new CsvIdParser());
+    }
+
+    @Benchmark
+    public ProductsService saveAll() {
+        service.saveAll(products);
+        return service;
+    }
+}
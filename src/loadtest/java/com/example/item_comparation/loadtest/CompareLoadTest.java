@@ -0,0 +1,184 @@
+package com.example.item_comparation.loadtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Closed-loop load generator for GET /products/compare/{ids}, JDK only so it runs as a single source file:
+//   java CompareLoadTest.java generate <catalog.json> <products>
+//   java CompareLoadTest.java run <baseUrl> [label=..] [concurrency=256] [duration=30] [warmup=10] [ids=10]
+//                                           [catalogSize=100000] [seed=42]
+// Every worker sends its next request as soon as the previous one answers, with ids drawn from a seeded
+// random sequence, so two runs against the same catalog send the same traffic. Requests completed during the
+// warmup are not recorded. The summary line reports throughput and latency percentiles of the measured window.
+public final class CompareLoadTest {
+
+    private CompareLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("generate")) {
+            generate(Path.of(args[1]), Integer.parseInt(args[2]));
+        } else if (args.length >= 2 && args[0].equals("run")) {
+            run(args[1], options(Arrays.copyOfRange(args, 2, args.length)));
+        } else {
+            System.err.println("usage: CompareLoadTest generate <catalog.json> <products> | run <baseUrl> [key=value ...]");
+            System.exit(2);
+        }
+    }
+
+    private static void generate(Path catalog, int products) throws IOException {
+        String[] classifications = {"Eletrônicos", "Móveis", "Esportes", "Livros"};
+        if (catalog.getParent() != null) {
+            Files.createDirectories(catalog.getParent());
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(catalog, StandardCharsets.UTF_8)) {
+            out.write('[');
+            for (int i = 1; i <= products; i++) {
+                if (i > 1) {
+                    out.write(',');
+                }
+                out.write("{\"id\":" + i
+                        + ",\"name\":\"Produto " + i + "\""
+                        + ",\"imageUrl\":\"https://example.com/images/produto-" + i + ".jpg\""
+                        + ",\"description\":\"Descrição do produto " + i + " com detalhes técnicos\""
+                        + ",\"price\":" + (1000 + i * 37L) / 100 + "." + String.format("%02d", (1000 + i * 37L) % 100)
+                        + ",\"classification\":\"" + classifications[i % classifications.length] + "\""
+                        + ",\"specifications\":\"Cor: Preto, Peso: " + (i % 50) + "kg, Garantia: 12 meses\"}");
+                out.newLine();
+            }
+            out.write(']');
+        }
+        System.out.println("generated " + products + " products in " + catalog);
+    }
+
+    private static void run(String baseUrl, Map<String, String> options) throws InterruptedException {
+        String label = options.getOrDefault("label", "run");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "256"));
+        long durationNanos = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30"))).toNanos();
+        long warmupNanos = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10"))).toNanos();
+        int idsPerRequest = Integer.parseInt(options.getOrDefault("ids", "10"));
+        int catalogSize = Integer.parseInt(options.getOrDefault("catalogSize", "100000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>(concurrency);
+        int[] counts = new int[concurrency];
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        for (int worker = 0; worker < concurrency; worker++) {
+            int index = worker;
+            long[] recorded = new long[1024];
+            latencies.add(recorded);
+            Thread thread = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed + index);
+                long[] samples = recorded;
+                int count = 0;
+                try {
+                    while (true) {
+                        long sent = System.nanoTime();
+                        if (sent >= end) {
+                            break;
+                        }
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/products/compare/"
+                                        + randomIds(random, idsPerRequest, catalogSize)))
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        boolean ok;
+                        try {
+                            ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (IOException exception) {
+                            ok = false;
+                        }
+                        long received = System.nanoTime();
+                        if (sent < measureFrom || received > end) {
+                            continue;
+                        }
+                        if (!ok) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, samples.length << 1);
+                        }
+                        samples[count++] = received - sent;
+                    }
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latencies.set(index, samples);
+                    counts[index] = count;
+                    done.countDown();
+                }
+            }, "load-" + worker);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        int total = Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int position = 0;
+        for (int worker = 0; worker < concurrency; worker++) {
+            System.arraycopy(latencies.get(worker), 0, all, position, counts[worker]);
+            position += counts[worker];
+        }
+        Arrays.sort(all);
+        double seconds = durationNanos / 1e9;
+        System.out.printf("%-10s concurrency=%d ids=%d requests=%d errors=%d throughput=%.0f req/s p50=%.2f ms p90=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                label, concurrency, idsPerRequest, total, errors.get(), total / seconds,
+                millis(all, 0.50), millis(all, 0.90), millis(all, 0.99), total == 0 ? 0.0 : all[total - 1] / 1e6);
+    }
+
+    private static String randomIds(SplittableRandom random, int count, int catalogSize) {
+        StringJoiner ids = new StringJoiner(",");
+        for (int i = 0; i < count; i++) {
+            ids.add(Integer.toString(1 + random.nextInt(catalogSize)));
+        }
+        return ids.toString();
+    }
+
+    private static double millis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+}
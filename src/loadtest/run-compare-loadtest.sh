@@ -0,0 +1,53 @@
+#!/usr/bin/env bash
+# Runs the same compare load against the app on platform threads and on virtual threads, one mode at a time.
+# Needs JDK 21 on the PATH for the virtual mode (MODES=platform runs on JDK 17). Tunables, with defaults:
+#   PRODUCTS=100000 CONCURRENCY=256 DURATION=30 WARMUP=10 IDS=10 TOMCAT_THREADS=200 PORT=18080 MODES="platform virtual"
+set -euo pipefail
+
+cd "$(dirname "$0")/../.."
+
+PRODUCTS=${PRODUCTS:-100000}
+CONCURRENCY=${CONCURRENCY:-256}
+DURATION=${DURATION:-30}
+WARMUP=${WARMUP:-10}
+IDS=${IDS:-10}
+TOMCAT_THREADS=${TOMCAT_THREADS:-200}
+PORT=${PORT:-18080}
+MODES=${MODES:-"platform virtual"}
+
+HARNESS=src/loadtest/java/com/example/item_comparation/loadtest/CompareLoadTest.java
+CATALOG=data/loadtest/catalog-${PRODUCTS}.json
+
+java_major=$(java -XshowSettings:properties -version 2>&1 | awk -F' = ' '/java.specification.version/ {print $2}')
+profile=""
+if [[ "$java_major" -ge 21 ]]; then
+    profile="-Pjava21"
+elif [[ " $MODES " == *" virtual "* ]]; then
+    echo "virtual threads need JDK 21+, found $java_major; rerun with MODES=platform or a newer JDK" >&2
+    exit 1
+fi
+
+./mvnw -q $profile -DskipTests package
+jar=$(ls target/item-comparation-*.jar | grep -v '\.original$' | head -n 1)
+[[ -f "$CATALOG" ]] || java "$HARNESS" generate "$CATALOG" "$PRODUCTS"
+
+for mode in $MODES; do
+    virtual=false
+    [[ "$mode" == "virtual" ]] && virtual=true
+    java -jar "$jar" \
+        --server.port="$PORT" \
+        --server.tomcat.threads.max="$TOMCAT_THREADS" \
+        --spring.threads.virtual.enabled="$virtual" \
+        --products.catalog.location="file:$CATALOG" \
+        > "data/loadtest/app-$mode.log" 2>&1 &
+    app=$!
+    trap 'kill $app 2>/dev/null || true' EXIT
+    until curl -sf "http://localhost:$PORT/actuator/health/readiness" > /dev/null; do
+        kill -0 "$app" 2>/dev/null || { echo "app failed to start, see data/loadtest/app-$mode.log" >&2; exit 1; }
+        sleep 1
+    done
+    java "$HARNESS" run "http://localhost:$PORT" label="$mode" concurrency="$CONCURRENCY" duration="$DURATION" \
+        warmup="$WARMUP" ids="$IDS" catalogSize="$PRODUCTS"
+    kill "$app"
+    wait "$app" 2>/dev/null || true
+done
@@ -0,0 +1,31 @@
+package com.example.item_comparation.controller;
+
+import com.example.item_comparation.repository.CatalogReload;
+import com.example.item_comparation.repository.DataLoader;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+// Admin access to catalog reloads, served on both the servlet and the reactive stack:
+// GET /actuator/catalog shows the last reload (404 before the first one), POST /actuator/catalog runs one
+@Component
+@Endpoint(id = "catalog")
+public class CatalogEndpoint {
+
+    private final DataLoader dataLoader;
+
+    public CatalogEndpoint(DataLoader dataLoader) {
+        this.dataLoader = dataLoader;
+    }
+
+    @ReadOperation
+    public CatalogReload lastReload() {
+        return dataLoader.lastReload();
+    }
+
+    @WriteOperation
+    public CatalogReload reload() {
+        return dataLoader.reload("endpoint");
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.item_comparation.controller;
+
+import com.example.item_comparation.exception.ErrorResponse;
+import com.example.item_comparation.service.CompareAdmission;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+
+// Sheds compare requests over the limits of CompareAdmission with 429 and Retry-After. It runs before the dispatcher,
+// so a refused request never reaches id parsing, version lookups or the store.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CompareAdmissionFilter extends OncePerRequestFilter {
+
+    static final String COMPARE_PATH = "/products/compare/";
+    static final int MAX_CLIENT_KEY_LENGTH = 128;
+
+    private final CompareAdmission compareAdmission;
+    private final ObjectMapper objectMapper;
+    private final String clientHeader;
+    private final Set<String> trustedProxies;
+
+    public CompareAdmissionFilter(CompareAdmission compareAdmission, ObjectMapper objectMapper,
+                                  @Value("${products.compare.rate-limit.client-header:X-Client-Id}") String clientHeader,
+                                  @Value("${products.compare.rate-limit.trusted-proxies:}") String[] trustedProxies) {
+        this.compareAdmission = compareAdmission;
+        this.objectMapper = objectMapper;
+        this.clientHeader = clientHeader;
+        this.trustedProxies = Set.copyOf(Arrays.asList(trustedProxies));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(COMPARE_PATH, request.getContextPath().length());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String uri = request.getRequestURI();
+        int ids = CompareAdmission.countIds(uri.substring(request.getContextPath().length() + COMPARE_PATH.length()));
+        var decision = compareAdmission.tryAcquire(clientKey(request.getHeader(clientHeader), request.getRemoteAddr(), trustedProxies), ids);
+        if (!decision.admitted()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), rejection(decision, uri));
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            compareAdmission.release();
+        }
+    }
+
+    // The configured header names the calling service, but any caller can set it, so it is only believed from the
+    // proxies or gateways listed in trusted-proxies; everyone else is keyed by the address the request came from
+    static String clientKey(String headerValue, String remoteAddress, Set<String> trustedProxies) {
+        if (headerValue == null || headerValue.isBlank() || !trustedProxies.contains(remoteAddress)) {
+            return "addr:" + remoteAddress;
+        }
+        String key = headerValue.length() > MAX_CLIENT_KEY_LENGTH ? headerValue.substring(0, MAX_CLIENT_KEY_LENGTH) : headerValue;
+        return "client:" + key;
+    }
+
+    static ErrorResponse rejection(CompareAdmission.Decision decision, String path) {
+        String message = CompareAdmission.REASON_RATE_LIMIT.equals(decision.reason())
+                ? "Compare rate limit exceeded, retry in " + decision.retryAfterSeconds() + "s"
+                : "Too many compare requests in progress, retry in " + decision.retryAfterSeconds() + "s";
+        return ErrorResponse.of(HttpStatus.TOO_MANY_REQUESTS, message, path);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.item_comparation.controller;
+
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+
+// Strong ETags derived from store versions. Versions are counters of this process, advanced by every write: after a
+// restart, or on a replica that took other writes, the same number can stand for other content. So every tag is
+// prefixed with a random per-process epoch, and a tag handed out by another process can never match. Revalidation
+// behind a load balancer needs requests to stick to an instance.
+@Component
+class ProductETags {
+
+    private final String epoch = Long.toHexString(new SecureRandom().nextLong());
+
+    // Returns null for a missing product, which has no representation to validate
+    String product(long version) {
+        return version == 0L ? null : quote(Long.toHexString(version));
+    }
+
+    String compare(String variant, String productIdsCsv, long[] versions) {
+        if (versions == null) {
+            return null;
+        }
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, productIdsCsv.hashCode());
+        for (long version : versions) {
+            hash = mix(hash, version);
+        }
+        return quote(variant + "-" + Long.toHexString(hash));
+    }
+
+    String catalog(String variant, long catalogVersion) {
+        return quote(variant + "-" + Long.toHexString(catalogVersion));
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * 0x100000001b3L;
+    }
+
+    private String quote(String value) {
+        return "\"" + epoch + "-" + value + "\"";
+    }
+}
@@ -1,38 +1,249 @@
 package com.example.item_comparation.controller;
 
+import com.example.item_comparation.domain.BatchIngestReport;
+import com.example.item_comparation.domain.CompareResult;
+import com.example.item_comparation.domain.CompareTable;
+import com.example.item_comparation.domain.ComparisonDiff;
 import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.exception.BadRequestException;
+import com.example.item_comparation.service.CompareJsonCache;
+import com.example.item_comparation.service.ProductBatchIngester;
+import com.example.item_comparation.service.ProductJsonCache;
 import com.example.item_comparation.service.ProductsService;
+import com.example.item_comparation.util.ProductJsonStreamWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Iterator;
 import java.util.List;
 
+// Every read answers If-None-Match from store versions alone: versions are read before the data they describe,
+// so a 304 never needs a lookup or serialization and an ETag never claims newer content than its body.
 @RestController
 @RequestMapping("/products")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class ProductsController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String ID_SORT = "id";
+
     @Autowired
     private ProductsService productsService;
 
+    @Autowired
+    private ProductETags productETags;
+
+    @Autowired
+    private ProductJsonStreamWriter productJsonStreamWriter;
+
+    @Autowired
+    private ProductJsonCache productJsonCache;
+
+    @Autowired
+    private CompareJsonCache compareJsonCache;
+
+    @Autowired
+    private ProductBatchIngester productBatchIngester;
+
+    // classification, minPrice, maxPrice and sort=price switch any listing to the secondary indexes
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
-        var products = productsService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<StreamingResponseBody> getAllProducts(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "classification", required = false) String classification,
+            @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+            @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+            @RequestParam(value = "sort", required = false) String sort,
+            WebRequest webRequest) {
+        boolean filtered = isFiltered(classification, minPrice, maxPrice, sort);
+        String eTag = productETags.catalog(filtered ? "json-filtered" : "json", productsService.getCatalogVersion());
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        // A filtered query is resolved before the response starts, so a bad filter still gets an error status
+        List<Product> matches = filtered ? productsService.findProducts(classification, minPrice, maxPrice, sort, after, null) : null;
+        Long afterId = filtered ? null : ProductsService.parseIdCursor(after);
+        StreamingResponseBody body = out -> productJsonStreamWriter.writeArray(
+                matches != null ? matches.iterator() : productsService.streamProducts(afterId).iterator(), out);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @GetMapping(params = "limit", produces = {MediaType.APPLICATION_JSON_VALUE, ResponseFormats.SMILE_VALUE})
+    public ResponseEntity<List<Product>> getProductsPage(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "classification", required = false) String classification,
+            @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+            @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+            @RequestParam(value = "sort", required = false) String sort,
+            WebRequest webRequest) {
+        boolean filtered = isFiltered(classification, minPrice, maxPrice, sort);
+        String eTag = productETags.catalog(ResponseFormats.variant(filtered ? "page-filtered" : "page", webRequest),
+                productsService.getCatalogVersion());
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        var products = filtered
+                ? productsService.findProducts(classification, minPrice, maxPrice, sort, after, limit)
+                : productsService.getProductsPage(ProductsService.parseIdCursor(after), limit);
+        var response = negotiated(eTag);
+        if (products.size() == limit) {
+            // A full page means there may be more: hand out the last product's position as the keyset cursor
+            response.header(NEXT_CURSOR_HEADER, productsService.cursorAfter(products.get(products.size() - 1), sort));
+        }
+        return response.body(products);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamProducts(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "classification", required = false) String classification,
+            @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+            @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+            @RequestParam(value = "sort", required = false) String sort,
+            WebRequest webRequest) {
+        if (limit != null && limit <= 0) {
+            throw new BadRequestException("limit must be greater than zero");
+        }
+        boolean filtered = isFiltered(classification, minPrice, maxPrice, sort);
+        String eTag = productETags.catalog(filtered ? "ndjson-filtered" : "ndjson", productsService.getCatalogVersion());
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        List<Product> matches = filtered ? productsService.findProducts(classification, minPrice, maxPrice, sort, after, limit) : null;
+        Long afterId = filtered ? null : ProductsService.parseIdCursor(after);
+        StreamingResponseBody body = out -> {
+            if (matches != null) {
+                productJsonStreamWriter.writeNdjson(matches.iterator(), out);
+                return;
+            }
+            var products = productsService.streamProducts(afterId);
+            Iterator<Product> iterator = limit == null ? products.iterator() : products.limit(limit).iterator();
+            productJsonStreamWriter.writeNdjson(iterator, out);
+        };
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // Incremental updates: NDJSON upserts and deletes, read as the body arrives and applied in bounded batches
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BatchIngestReport ingestProducts(InputStream body) {
+        return productBatchIngester.ingest(body);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<Product>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            WebRequest webRequest) {
+        String eTag = productETags.catalog(ResponseFormats.variant("search", webRequest), productsService.getCatalogVersion());
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return negotiated(eTag).body(productsService.search(query, limit));
     }
 
     @GetMapping("/{productId}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long productId) {
-        var product = productsService.getProductById(productId);
-        return ResponseEntity.ok(product);
+    public ResponseEntity<byte[]> getProductById(@PathVariable Long productId, WebRequest webRequest) {
+        String currentETag = productETags.product(productsService.getProductVersion(productId));
+        if (currentETag != null && webRequest.checkNotModified(currentETag)) {
+            return null;
+        }
+        var json = productJsonCache.getProductJson(productId);
+        return eTagged(productETags.product(json.version()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json.bytes());
     }
 
+    // A cached response carries the versions its ETag is made from, so revalidating costs the same as a hit
     @GetMapping("/compare/{productIds}")
-    public ResponseEntity<List<Product>> compareProductsNoParams(@PathVariable("productIds") String productIds) {
+    public ResponseEntity<byte[]> compareProductsNoParams(@PathVariable("productIds") String productIds, WebRequest webRequest) {
+        var json = compareJsonCache.getCompareJson(productIds);
+        if (json.versions().length == 0) {
+            return ResponseEntity.noContent().build();
+        }
+        String eTag = productETags.compare("list", productIds, json.versions());
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return negotiated(eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json.bytes());
+    }
+
+    // Same products as the JSON list above, encoded by the Smile converter instead of served from the JSON cache
+    @GetMapping(value = "/compare/{productIds}", produces = ResponseFormats.SMILE_VALUE)
+    public ResponseEntity<List<Product>> compareProductsSmile(@PathVariable("productIds") String productIds, WebRequest webRequest) {
+        String eTag = productETags.compare("list-smile", productIds, productsService.getProductVersions(productIds));
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
         var products = productsService.compareFromCsv(productIds);
         if (products.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
-        return ResponseEntity.ok(products);
+        return negotiated(eTag).body(products);
+    }
+
+    @GetMapping(value = "/compare/{productIds}", params = "partial=true")
+    public ResponseEntity<CompareResult> compareProductsPartial(@PathVariable("productIds") String productIds, WebRequest webRequest) {
+        String eTag = productETags.compare(ResponseFormats.variant("partial", webRequest), productIds,
+                productsService.getProductVersions(productIds));
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        var result = productsService.comparePartialFromCsv(productIds);
+        return negotiated(eTag).body(result);
+    }
+
+    @GetMapping(value = "/compare/{productIds}", params = "view=diff")
+    public ResponseEntity<ComparisonDiff> compareProductsDiff(@PathVariable("productIds") String productIds, WebRequest webRequest) {
+        String eTag = productETags.compare(ResponseFormats.variant("diff", webRequest), productIds,
+                productsService.getProductVersions(productIds));
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        var diff = productsService.compareDiffFromCsv(productIds);
+        return negotiated(eTag).body(diff);
+    }
+
+    // Columnar layout: one array per attribute across the compared products
+    @GetMapping(value = "/compare/{productIds}", params = "view=table")
+    public ResponseEntity<CompareTable> compareProductsTable(@PathVariable("productIds") String productIds, WebRequest webRequest) {
+        String eTag = productETags.compare(ResponseFormats.variant("table", webRequest), productIds,
+                productsService.getProductVersions(productIds));
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        var table = productsService.compareTableFromCsv(productIds);
+        return negotiated(eTag).body(table);
+    }
+
+    static boolean isFiltered(String classification, BigDecimal minPrice, BigDecimal maxPrice, String sort) {
+        return (classification != null && !classification.isBlank()) || minPrice != null || maxPrice != null
+                || (sort != null && !sort.equals(ID_SORT));
+    }
+
+    private static ResponseEntity.BodyBuilder eTagged(String eTag) {
+        var response = ResponseEntity.ok();
+        return eTag == null ? response : response.eTag(eTag);
+    }
+
+    // For bodies left to content negotiation, which may be JSON or Smile depending on Accept
+    private static ResponseEntity.BodyBuilder negotiated(String eTag) {
+        return eTagged(eTag).varyBy(HttpHeaders.ACCEPT);
     }
 }
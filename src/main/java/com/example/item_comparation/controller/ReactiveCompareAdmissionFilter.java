@@ -0,0 +1,73 @@
+package com.example.item_comparation.controller;
+
+import com.example.item_comparation.service.CompareAdmission;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Set;
+
+// CompareAdmissionFilter for the reactive web application. The concurrency slot is held until the response
+// completes, streamed comparisons included.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCompareAdmissionFilter implements WebFilter {
+
+    private final CompareAdmission compareAdmission;
+    private final ObjectMapper objectMapper;
+    private final String clientHeader;
+    private final Set<String> trustedProxies;
+
+    public ReactiveCompareAdmissionFilter(CompareAdmission compareAdmission, ObjectMapper objectMapper,
+                                          @Value("${products.compare.rate-limit.client-header:X-Client-Id}") String clientHeader,
+                                          @Value("${products.compare.rate-limit.trusted-proxies:}") String[] trustedProxies) {
+        this.compareAdmission = compareAdmission;
+        this.objectMapper = objectMapper;
+        this.clientHeader = clientHeader;
+        this.trustedProxies = Set.copyOf(Arrays.asList(trustedProxies));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().pathWithinApplication().value();
+        if (!path.startsWith(CompareAdmissionFilter.COMPARE_PATH)) {
+            return chain.filter(exchange);
+        }
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String clientKey = CompareAdmissionFilter.clientKey(request.getHeaders().getFirst(clientHeader),
+                remoteAddress == null ? "unknown" : remoteAddress.getHostString(), trustedProxies);
+        var decision = compareAdmission.tryAcquire(clientKey,
+                CompareAdmission.countIds(path.substring(CompareAdmissionFilter.COMPARE_PATH.length())));
+        if (!decision.admitted()) {
+            return reject(exchange.getResponse(), decision, request.getPath().value());
+        }
+        return chain.filter(exchange).doFinally(signal -> compareAdmission.release());
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, CompareAdmission.Decision decision, String path) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(CompareAdmissionFilter.rejection(decision, path));
+        } catch (JsonProcessingException exception) {
+            return Mono.error(exception);
+        }
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.item_comparation.controller;
+
+import com.example.item_comparation.domain.BatchIngestReport;
+import com.example.item_comparation.domain.CompareResult;
+import com.example.item_comparation.domain.CompareTable;
+import com.example.item_comparation.domain.ComparisonDiff;
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.exception.BadRequestException;
+import com.example.item_comparation.service.CompareJsonCache;
+import com.example.item_comparation.service.ProductBatchIngester;
+import com.example.item_comparation.service.ProductJsonCache;
+import com.example.item_comparation.service.ProductsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// WebFlux variant of ProductsController, served when the app runs as a reactive web application (the "reactive"
+// profile). Same routes, store and ETags. Catalog listings and NDJSON comparisons are Flux streams pulled from the
+// store only as fast as the client reads them, so a slow client pins no thread and no payload is buffered whole.
+// Reads are in-memory and never block, so they run directly on the event loop. Writes take the service's write
+// lock, so batch ingestion is moved off it.
+@RestController
+@RequestMapping("/products")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveProductsController {
+
+    @Autowired
+    private ProductsService productsService;
+
+    @Autowired
+    private ProductETags productETags;
+
+    @Autowired
+    private ProductJsonCache productJsonCache;
+
+    @Autowired
+    private CompareJsonCache compareJsonCache;
+
+    @Autowired
+    private ProductBatchIngester productBatchIngester;
+
+    @GetMapping
+    public Mono<ResponseEntity<Flux<Product>>> getAllProducts(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "classification", required = false) String classification,
+            @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+            @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+            @RequestParam(value = "sort", required = false) String sort,
+            ServerWebExchange exchange) {
+        boolean filtered = ProductsController.isFiltered(classification, minPrice, maxPrice, sort);
+        String eTag = productETags.catalog(filtered ? "json-filtered" : "json", productsService.getCatalogVersion());
+        if (exchange.checkNotModified(eTag)) {
+            return Mono.empty();
+        }
+        return Mono.just(ResponseEntity.ok()
+                .eTag(eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(products(after, classification, minPrice, maxPrice, sort, null)));
+    }
+
+    @GetMapping(params = "limit", produces = {MediaType.APPLICATION_JSON_VALUE, ResponseFormats.SMILE_VALUE})
+    public Mono<ResponseEntity<List<Product>>> getProductsPage(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "classification", required = false) String classification,
+            @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+            @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+            @RequestParam(value = "sort", required = false) String sort,
+            ServerWebExchange exchange) {
+        boolean filtered = ProductsController.isFiltered(classification, minPrice, maxPrice, sort);
+        String eTag = productETags.catalog(ResponseFormats.variant(filtered ? "page-filtered" : "page", exchange),
+                productsService.getCatalogVersion());
+        if (exchange.checkNotModified(eTag)) {
+            return Mono.empty();
+        }
+        var products = filtered
+                ? productsService.findProducts(classification, minPrice, maxPrice, sort, after, limit)
+                : productsService.getProductsPage(ProductsService.parseIdCursor(after), limit);
+        var response = negotiated(eTag);
+        if (products.size() == limit) {
+            // A full page means there may be more: hand out the last product's position as the keyset cursor
+            response.header(ProductsController.NEXT_CURSOR_HEADER, productsService.cursorAfter(products.get(products.size() - 1), sort));
+        }
+        return Mono.just(response.body(products));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<Product>>> streamProducts(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "classification", required = false) String classification,
+            @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+            @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+            @RequestParam(value = "sort", required = false) String sort,
+            ServerWebExchange exchange) {
+        if (limit != null && limit <= 0) {
+            throw new BadRequestException("limit must be greater than zero");
+        }
+        boolean filtered = ProductsController.isFiltered(classification, minPrice, maxPrice, sort);
+        String eTag = productETags.catalog(filtered ? "ndjson-filtered" : "ndjson", productsService.getCatalogVersion());
+        if (exchange.checkNotModified(eTag)) {
+            return Mono.empty();
+        }
+        return Mono.just(ResponseEntity.ok()
+                .eTag(eTag)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(products(after, classification, minPrice, maxPrice, sort, limit)));
+    }
+
+    // Lines are applied as they are decoded, so the payload is never held whole. Each full batch is saved under the
+    // service's write lock, so lines are handed to one bounded-elastic worker, in order, instead of the event loop.
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<BatchIngestReport> ingestProducts(@RequestBody Flux<String> lines) {
+        return Mono.defer(() -> {
+            var ingestion = productBatchIngester.begin();
+            return lines.publishOn(Schedulers.boundedElastic())
+                    .doOnNext(ingestion::accept)
+                    .then(Mono.fromSupplier(ingestion::finish));
+        });
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<List<Product>>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            ServerWebExchange exchange) {
+        String eTag = productETags.catalog(ResponseFormats.variant("search", exchange), productsService.getCatalogVersion());
+        if (exchange.checkNotModified(eTag)) {
+            return Mono.empty();
+        }
+        return Mono.just(negotiated(eTag).body(productsService.search(query, limit)));
+    }
+
+    @GetMapping("/{productId}")
+    public Mono<ResponseEntity<byte[]>> getProductById(@PathVariable Long productId, ServerWebExchange exchange) {
+        String currentETag = productETags.product(productsService.getProductVersion(productId));
+        if (currentETag != null && exchange.checkNotModified(currentETag)) {
+            return Mono.empty();
+        }
+        var json = productJsonCache.getProductJson(productId);
+        return Mono.just(eTagged(productETags.product(json.version()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json.bytes()));
+    }
+
+    @GetMapping(value = "/compare/{productIds}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<byte[]>> compareProductsNoParams(@PathVariable("productIds") String productIds, ServerWebExchange exchange) {
+        var json = compareJsonCache.getCompareJson(productIds);
+        if (json.versions().length == 0) {
+            return Mono.just(ResponseEntity.noContent().build());
+        }
+        String eTag = productETags.compare("list", productIds, json.versions());
+        if (exchange.checkNotModified(eTag)) {
+            return Mono.empty();
+        }
+        return Mono.just(negotiated(eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json.bytes()));
+    }
+
+    @GetMapping(value = "/compare/{productIds}", produces = ResponseFormats.SMILE_VALUE)
+    public Mono<ResponseEntity<List<Product>>> compareProductsSmile(@PathVariable("productIds") String productIds, ServerWebExchange exchange) {
+        String eTag = productETags.compare("list-smile", productIds, productsService.getProductVersions(productIds));
+        if (eTag != null && exchange.checkNotModified(eTag)) {
+            return Mono.empty();
+        }
+        var products = productsService.compareFromCsv(productIds);
+        if (products.isEmpty()) {
+            return Mono.just(ResponseEntity.noContent().build());
+        }
+        return Mono.just(negotiated(eTag).body(products));
+    }
+
+    // Large comparisons: one product per line, resolved window by window as the client reads
+    @GetMapping(value = "/compare/{productIds}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<Product>>> streamCompareProducts(@PathVariable("productIds") String productIds, ServerWebExchange exchange) {
+        String eTag = productETags.compare("ndjson", productIds, productsService.getProductVersions(productIds));
+        if (eTag != null && exchange.checkNotModified(eTag)) {
+            return Mono.empty();
+        }
+        // Resolved before the response starts, so a missing id still gets its 404
+        var products = productsService.streamCompareFromCsv(productIds);
+        return Mono.just(negotiated(eTag)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(Flux.fromStream(products)));
+    }
+
+    @GetMapping(value = "/compare/{productIds}", params = "partial=true")
+    public Mono<ResponseEntity<CompareResult>> compareProductsPartial(@PathVariable("productIds") String productIds, ServerWebExchange exchange) {
+        String eTag = productETags.compare(ResponseFormats.variant("partial", exchange), productIds,
+                productsService.getProductVersions(productIds));
+        if (eTag != null && exchange.checkNotModified(eTag)) {
+            return Mono.empty();
+        }
+        return Mono.just(negotiated(eTag).body(productsService.comparePartialFromCsv(productIds)));
+    }
+
+    @GetMapping(value = "/compare/{productIds}", params = "view=diff")
+    public Mono<ResponseEntity<ComparisonDiff>> compareProductsDiff(@PathVariable("productIds") String productIds, ServerWebExchange exchange) {
+        String eTag = productETags.compare(ResponseFormats.variant("diff", exchange), productIds,
+                productsService.getProductVersions(productIds));
+        if (eTag != null && exchange.checkNotModified(eTag)) {
+            return Mono.empty();
+        }
+        return Mono.just(negotiated(eTag).body(productsService.compareDiffFromCsv(productIds)));
+    }
+
+    @GetMapping(value = "/compare/{productIds}", params = "view=table")
+    public Mono<ResponseEntity<CompareTable>> compareProductsTable(@PathVariable("productIds") String productIds, ServerWebExchange exchange) {
+        String eTag = productETags.compare(ResponseFormats.variant("table", exchange), productIds,
+                productsService.getProductVersions(productIds));
+        if (eTag != null && exchange.checkNotModified(eTag)) {
+            return Mono.empty();
+        }
+        return Mono.just(negotiated(eTag).body(productsService.compareTableFromCsv(productIds)));
+    }
+
+    // Filtered queries are resolved eagerly so a bad filter fails before the response starts; the plain catalog
+    // is pulled lazily, a chunk of the store at a time, as demand arrives
+    private Flux<Product> products(String after, String classification, BigDecimal minPrice, BigDecimal maxPrice,
+                                   String sort, Integer limit) {
+        if (ProductsController.isFiltered(classification, minPrice, maxPrice, sort)) {
+            return Flux.fromIterable(productsService.findProducts(classification, minPrice, maxPrice, sort, after, limit));
+        }
+        Long afterId = ProductsService.parseIdCursor(after);
+        Flux<Product> catalog = Flux.fromStream(() -> productsService.streamProducts(afterId));
+        return limit == null ? catalog : catalog.take(limit);
+    }
+
+    private static ResponseEntity.BodyBuilder eTagged(String eTag) {
+        var response = ResponseEntity.ok();
+        return eTag == null ? response : response.eTag(eTag);
+    }
+
+    private static ResponseEntity.BodyBuilder negotiated(String eTag) {
+        return eTagged(eTag).varyBy(HttpHeaders.ACCEPT);
+    }
+}
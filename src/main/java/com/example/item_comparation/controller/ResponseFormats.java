@@ -0,0 +1,88 @@
+package com.example.item_comparation.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Smile is Jackson's binary JSON: same data model, field names and repeated strings written as back references.
+// Internal callers opt in with Accept: application/x-jackson-smile; anything else keeps getting JSON. Both MVC and
+// WebFlux register a Smile converter by default once jackson-dataformat-smile is on the classpath.
+final class ResponseFormats {
+
+    static final String SMILE_VALUE = "application/x-jackson-smile";
+    static final MediaType SMILE = MediaType.valueOf(SMILE_VALUE);
+
+    private ResponseFormats() {
+    }
+
+    // The same resource in two encodings must not share a strong ETag
+    static String variant(String variant, List<MediaType> accept) {
+        return prefersSmile(accept) ? variant + "-smile" : variant;
+    }
+
+    static String variant(String variant, WebRequest webRequest) {
+        return variant(variant, accept(webRequest));
+    }
+
+    static String variant(String variant, ServerWebExchange exchange) {
+        try {
+            return variant(variant, exchange.getRequest().getHeaders().getAccept());
+        } catch (InvalidMediaTypeException exception) {
+            return variant;
+        }
+    }
+
+    // Mirrors content negotiation between the two encodings: higher quality wins, then the more specific type (an
+    // explicit application/x-jackson-smile beats */*), then the one listed first. Wildcards alone mean JSON.
+    static boolean prefersSmile(List<MediaType> accept) {
+        int smile = -1;
+        int json = -1;
+        for (int i = 0; i < accept.size(); i++) {
+            MediaType type = accept.get(i);
+            if (SMILE.equalsTypeAndSubtype(type)) {
+                smile = preferred(accept, smile, i);
+            } else if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                json = preferred(accept, json, i);
+            }
+        }
+        return smile >= 0 && accept.get(smile).getQualityValue() > 0
+                && (json < 0 || preferred(accept, json, smile) == smile);
+    }
+
+    private static int preferred(List<MediaType> accept, int current, int candidate) {
+        if (current < 0) {
+            return candidate;
+        }
+        MediaType currentType = accept.get(current);
+        MediaType candidateType = accept.get(candidate);
+        if (currentType.getQualityValue() != candidateType.getQualityValue()) {
+            return candidateType.getQualityValue() > currentType.getQualityValue() ? candidate : current;
+        }
+        if (specificity(currentType) != specificity(candidateType)) {
+            return specificity(candidateType) > specificity(currentType) ? candidate : current;
+        }
+        return Math.min(current, candidate);
+    }
+
+    private static int specificity(MediaType type) {
+        return type.isWildcardType() ? 0 : type.isWildcardSubtype() ? 1 : 2;
+    }
+
+    private static List<MediaType> accept(WebRequest webRequest) {
+        String[] values = webRequest.getHeaderValues(HttpHeaders.ACCEPT);
+        if (values == null) {
+            return List.of();
+        }
+        try {
+            return MediaType.parseMediaTypes(Arrays.asList(values));
+        } catch (InvalidMediaTypeException exception) {
+            // Negotiation rejects the request on its own, the ETag variant does not matter
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.item_comparation.domain;
+
+import java.util.List;
+
+// Outcome of a POST /products/batch payload: totals, one entry per applied batch and the first errors by line
+public record BatchIngestReport(long lines, long upserted, long deleted, long notFound, long errors,
+                                long durationMs, double operationsPerSecond,
+                                List<Batch> batches, List<LineError> errorSamples) {
+
+    public record Batch(int batch, int operations, int upserted, int deleted, int notFound, int errors,
+                        double durationMs, double operationsPerSecond) {
+    }
+
+    public record LineError(long line, String message) {
+    }
+}
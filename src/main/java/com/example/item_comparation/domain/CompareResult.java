@@ -0,0 +1,29 @@
+package com.example.item_comparation.domain;
+
+import java.util.List;
+
+public class CompareResult {
+    private List<Product> products;
+    private List<Long> missingIds;
+
+    public CompareResult(List<Product> products, List<Long> missingIds) {
+        this.products = products;
+        this.missingIds = missingIds;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<Product> products) {
+        this.products = products;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+}
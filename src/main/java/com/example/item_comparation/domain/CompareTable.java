@@ -0,0 +1,12 @@
+package com.example.item_comparation.domain;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+// Columnar comparison: every attribute appears once, as an array holding one value per product in the order of id.
+// specifications has one such array per specification key found in any product, with null where a product lacks it.
+public record CompareTable(List<Long> id, List<String> name, List<String> imageUrl, List<String> description,
+                           List<BigDecimal> price, List<String> classification,
+                           Map<String, List<String>> specifications) {
+}
@@ -0,0 +1,62 @@
+package com.example.item_comparation.domain;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+public class ComparisonDiff {
+    private List<Long> productIds;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Map<String, List<Object>> attributes;
+    private Map<String, List<String>> specifications;
+
+    public ComparisonDiff(List<Long> productIds, BigDecimal minPrice, BigDecimal maxPrice,
+                          Map<String, List<Object>> attributes, Map<String, List<String>> specifications) {
+        this.productIds = productIds;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.attributes = attributes;
+        this.specifications = specifications;
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+
+    public void setProductIds(List<Long> productIds) {
+        this.productIds = productIds;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Map<String, List<Object>> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(Map<String, List<Object>> attributes) {
+        this.attributes = attributes;
+    }
+
+    public Map<String, List<String>> getSpecifications() {
+        return specifications;
+    }
+
+    public void setSpecifications(Map<String, List<String>> specifications) {
+        this.specifications = specifications;
+    }
+}
@@ -1,21 +1,39 @@
 package com.example.item_comparation.domain;
 
+import com.example.item_comparation.util.SpecificationParser;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Objects;
 
+// Mutable while it is being built or deserialized. The store only keeps frozen products, whose setters throw, so a
+// product handed out by the store can be shared by any number of readers and never changes under them.
 public class Product {
+
+    // Price units of a product without a price; sorts after every real price
+    public static final long NO_PRICE = Long.MAX_VALUE;
+
     private Long id;
     private String name;
     private String imageUrl;
     private String description;
     private BigDecimal price;
+    // The price as a count of PriceScale units, set at ingest; the BigDecimal is only kept for serialization
+    private long priceUnits = NO_PRICE;
     private String classification;
     private String specifications;
+    // Volatile so a frozen product shared between readers publishes the parsed map safely; two readers racing on
+    // the first use both parse the same text and either result may win
+    private volatile Map<String, String> specificationAttributes;
+    private boolean frozen;
 
     public Long getId() {
         return id;
     }
 
     public void setId(Long id) {
+        checkMutable();
         this.id = id;
     }
 
@@ -24,6 +42,7 @@ public class Product {
     }
 
     public void setName(String name) {
+        checkMutable();
         this.name = name;
     }
 
@@ -32,6 +51,7 @@ public class Product {
     }
 
     public void setImageUrl(String imageUrl) {
+        checkMutable();
         this.imageUrl = imageUrl;
     }
 
@@ -40,6 +60,7 @@ public class Product {
     }
 
     public void setDescription(String description) {
+        checkMutable();
         this.description = description;
     }
 
@@ -48,7 +69,19 @@ public class Product {
     }
 
     public void setPrice(BigDecimal price) {
+        checkMutable();
         this.price = price;
+        this.priceUnits = NO_PRICE;
+    }
+
+    @JsonIgnore
+    public long getPriceUnits() {
+        return priceUnits;
+    }
+
+    public void setPriceUnits(long priceUnits) {
+        checkMutable();
+        this.priceUnits = priceUnits;
     }
 
     public String getClassification() {
@@ -56,6 +89,7 @@ public class Product {
     }
 
     public void setClassification(String classification) {
+        checkMutable();
         this.classification = classification;
     }
 
@@ -64,6 +98,76 @@ public class Product {
     }
 
     public void setSpecifications(String specifications) {
+        checkMutable();
         this.specifications = specifications;
+        this.specificationAttributes = null;
+    }
+
+    // Structured view of specifications, parsed on first use and kept until the specifications change. Filling the
+    // cache is not a change of content, so it is allowed on a frozen product.
+    @JsonIgnore
+    public Map<String, String> getSpecificationAttributes() {
+        Map<String, String> attributes = specificationAttributes;
+        if (attributes == null) {
+            attributes = SpecificationParser.parse(specifications);
+            specificationAttributes = attributes;
+        }
+        return attributes;
+    }
+
+    // Mutable copy, e.g. to change a product read from the store
+    public Product copy() {
+        Product copy = new Product();
+        copy.id = id;
+        copy.name = name;
+        copy.imageUrl = imageUrl;
+        copy.description = description;
+        copy.price = price;
+        copy.priceUnits = priceUnits;
+        copy.classification = classification;
+        copy.specifications = specifications;
+        copy.specificationAttributes = specificationAttributes;
+        return copy;
+    }
+
+    // Makes this product read-only and returns it. Specifications stay unparsed until someone asks for them, so
+    // freezing a product decoded on every read costs nothing.
+    public Product freeze() {
+        frozen = true;
+        return this;
+    }
+
+    // Same stored content; whether either side is frozen does not matter
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Product product)) {
+            return false;
+        }
+        return Objects.equals(id, product.id)
+                && Objects.equals(name, product.name)
+                && Objects.equals(imageUrl, product.imageUrl)
+                && Objects.equals(description, product.description)
+                && Objects.equals(price, product.price)
+                && Objects.equals(classification, product.classification)
+                && Objects.equals(specifications, product.specifications);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, price);
+    }
+
+    @JsonIgnore
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Product " + id + " is frozen; change a copy instead"); // Throws exception for writes to a stored product
+        }
     }
 }
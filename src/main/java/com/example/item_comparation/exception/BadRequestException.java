@@ -0,0 +1,17 @@
+package com.example.item_comparation.exception;
+
+// Input the caller got wrong: bad ids, filters, limits or prices. Only this type is answered with 400; any other
+// IllegalArgumentException is a fault of the service or a library and stays a 500. Still an
+// IllegalArgumentException for callers that validate input generically, and stackless for the same reason as
+// ProductNotFoundException.
+public class BadRequestException extends IllegalArgumentException {
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+    // IllegalArgumentException has no constructor that turns the stack trace off
+    @Override
+    public Throwable fillInStackTrace() {
+        return this;
+    }
+}
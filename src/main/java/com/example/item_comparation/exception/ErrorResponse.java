@@ -1,9 +1,15 @@
 package com.example.item_comparation.exception;
 
+import org.springframework.http.HttpStatus;
+
+import java.time.Clock;
 import java.time.LocalDateTime;
 
 public class ErrorResponse {
 
+    // LocalDateTime.now() looks the default time zone up on every call; the clock does it once
+    private static final Clock CLOCK = Clock.systemDefaultZone();
+
     private LocalDateTime timestamp;
     private int status;
     private String error;
@@ -18,6 +24,11 @@ public class ErrorResponse {
         this.path = path;
     }
 
+    // Status code and reason phrase are constants of the HttpStatus, only the message and path vary per error
+    public static ErrorResponse of(HttpStatus status, String message, String path) {
+        return new ErrorResponse(LocalDateTime.now(CLOCK), status.value(), status.getReasonPhrase(), message, path);
+    }
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
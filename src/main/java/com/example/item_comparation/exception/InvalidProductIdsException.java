@@ -0,0 +1,8 @@
+package com.example.item_comparation.exception;
+
+// Malformed product ids from the request path, answered with 400 like every BadRequestException
+public class InvalidProductIdsException extends BadRequestException {
+    public InvalidProductIdsException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,13 @@
 package com.example.item_comparation.exception;
 
+// A miss is ordinary compare traffic, not a bug: the message and the request path say all the 404 needs, so the
+// exception skips the stack trace, which is most of what creating it costs
 public class ProductNotFoundException extends RuntimeException {
     public ProductNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
+    }
+
+    public ProductNotFoundException(long productId) {
+        this("Product with ID " + productId + " not found.");
     }
 }
@@ -0,0 +1,41 @@
+package com.example.item_comparation.exception;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// Same error bodies as GlobalHandlerController for the reactive web application
+@RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveGlobalHandlerController {
+
+    @ExceptionHandler(ProductNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleProductNotFound(
+            ProductNotFoundException exception,
+            ServerHttpRequest request) {
+        return error(HttpStatus.NOT_FOUND, exception, request);
+    }
+
+    // Invalid ids, filters, limits and prices. A plain IllegalArgumentException is not the caller's fault and is left
+    // to the default 500.
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ErrorResponse> handleBadRequest(
+            BadRequestException exception,
+            ServerHttpRequest request) {
+        return error(HttpStatus.BAD_REQUEST, exception, request);
+    }
+
+    @ExceptionHandler(InternalServerErrorException.class)
+    public ResponseEntity<ErrorResponse> handleInternalServerError(
+            InternalServerErrorException exception,
+            ServerHttpRequest request) {
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, exception, request);
+    }
+
+    private static ResponseEntity<ErrorResponse> error(HttpStatus status, RuntimeException exception, ServerHttpRequest request) {
+        return new ResponseEntity<>(ErrorResponse.of(status, exception.getMessage(), request.getPath().value()), status);
+    }
+}
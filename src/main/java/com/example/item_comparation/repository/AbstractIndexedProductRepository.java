@@ -0,0 +1,446 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Shared id handling for the store backends: a primitive id -> record number index plus a sorted id column for
+// keyset iteration. Subclasses only decide how a record number maps to product data.
+//
+// The store is published as immutable generations. Every write builds the next generation and swaps it in with a
+// single volatile write, so readers never lock or retry, every read sees one whole catalog version, and a saveAll
+// batch becomes visible all at once. Generations share structure: record numbers past a generation's slot count are
+// invisible to its readers, so appends go into the shared arrays and only arrays whose published slots change are
+// copied, once per batch. The id index is shared as well, with record numbers past the slot count read as missing.
+// A record number stays with its id for good: a delete only zeroes the slot's version, and a re-added id gets the
+// same slot back.
+public abstract class AbstractIndexedProductRepository<R extends AbstractIndexedProductRepository.Records>
+        implements ProductRepository {
+
+    // Product data of one generation; never changes once published
+    protected interface Records {
+
+        Product read(int recordNumber);
+
+        // Bytes held by the product data, excluding the id index and versions kept by the base class
+        long bytes();
+    }
+
+    private final Object writeLock = new Object();
+    private volatile Generation<R> generation;
+
+    protected AbstractIndexedProductRepository(int expectedSize, R emptyRecords) {
+        int capacity = Math.max(16, expectedSize);
+        this.generation = new Generation<>(0L, new LongIntHashIndex(expectedSize), new long[capacity], 0,
+                new long[capacity], 0, emptyRecords);
+    }
+
+    // Records of a generation with no products yet, used to stage a replacement catalog
+    protected abstract R emptyRecords();
+
+    // Returns the records of the next generation: published plus products[i] at recordNumbers[i]. Slots below
+    // publishedSlots are being read and must not change in place; slots from publishedSlots on are free to write.
+    // The products are already frozen and their record numbers distinct. Throwing leaves the published generation
+    // untouched.
+    protected abstract R writeRecords(R published, int publishedSlots, int[] recordNumbers, Product[] products);
+
+    // Returns the records of the next generation after the products at recordNumbers were deleted. Their slots are
+    // not read again until their id is saved again, so a backend may drop what they hold; published records must
+    // not change in place. Defaults to the published records.
+    protected R releaseRecords(R published, int[] recordNumbers) {
+        return published;
+    }
+
+    @Override
+    public Product findById(long id) {
+        Generation<R> current = generation;
+        int recordNumber = current.recordNumber(id);
+        return recordNumber == LongIntHashIndex.NOT_FOUND ? null : current.records.read(recordNumber);
+    }
+
+    @Override
+    public Product[] findAllById(long[] ids) {
+        Generation<R> current = generation;
+        Product[] products = new Product[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int recordNumber = current.recordNumber(ids[i]);
+            products[i] = recordNumber == LongIntHashIndex.NOT_FOUND ? null : current.records.read(recordNumber);
+        }
+        return products;
+    }
+
+    @Override
+    public long versionOf(long id) {
+        Generation<R> current = generation;
+        int recordNumber = current.recordNumber(id);
+        return recordNumber == LongIntHashIndex.NOT_FOUND ? 0L : current.versions[recordNumber];
+    }
+
+    @Override
+    public long[] versionsOf(long[] ids) {
+        Generation<R> current = generation;
+        long[] found = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int recordNumber = current.recordNumber(ids[i]);
+            found[i] = recordNumber == LongIntHashIndex.NOT_FOUND ? 0L : current.versions[recordNumber];
+        }
+        return found;
+    }
+
+    @Override
+    public long catalogVersion() {
+        return generation.catalogVersion;
+    }
+
+    @Override
+    public void save(Product product) {
+        saveAll(List.of(requireId(product)));
+    }
+
+    @Override
+    public void saveAll(Collection<Product> products) {
+        Product[] frozen = frozenCopies(products);
+        if (frozen.length == 0) {
+            return;
+        }
+        synchronized (writeLock) {
+            generation = next(generation, frozen);
+        }
+    }
+
+    @Override
+    public int deleteAll(long[] ids) {
+        synchronized (writeLock) {
+            Generation<R> published = generation;
+            Generation<R> next = without(published, ids);
+            if (next == published) {
+                return 0;
+            }
+            generation = next;
+            return published.size - next.size;
+        }
+    }
+
+    @Override
+    public CatalogReplacement beginReplacement() {
+        return new StagedCatalog();
+    }
+
+    // Walks the generation current when the stream is created, so a listing never mixes two catalog versions
+    @Override
+    public Stream<Product> streamFrom(Long afterId) {
+        Generation<R> current = generation;
+        int from = afterId == null ? 0 : upperBound(current.sortedIds, current.size, afterId);
+        return IntStream.range(from, current.size)
+                .mapToObj(position -> current.records.read(current.index.get(current.sortedIds[position])));
+    }
+
+    @Override
+    public int size() {
+        return generation.size;
+    }
+
+    @Override
+    public long maxId() {
+        Generation<R> current = generation;
+        return current.size == 0 ? 0L : current.sortedIds[current.size - 1];
+    }
+
+    @Override
+    public long estimatedMemoryBytes() {
+        Generation<R> current = generation;
+        return current.index.footprintBytes()
+                + (long) (current.sortedIds.length + current.versions.length) * Long.BYTES
+                + current.records.bytes();
+    }
+
+    protected final R publishedRecords() {
+        return generation.records;
+    }
+
+    // Replaces the whole content with records 0..ids.length-1 held by the given records.
+    // Ids must be strictly ascending, as they are written by a snapshot.
+    protected final void attachRecords(long[] ascendingIds, R records) {
+        LongIntHashIndex attachedIndex = new LongIntHashIndex(ascendingIds.length);
+        for (int i = 0; i < ascendingIds.length; i++) {
+            attachedIndex.put(ascendingIds[i], i);
+        }
+        long[] attachedIds = Arrays.copyOf(ascendingIds, Math.max(16, ascendingIds.length));
+        long[] attachedVersions = new long[attachedIds.length];
+        synchronized (writeLock) {
+            long version = generation.catalogVersion + 1;
+            Arrays.fill(attachedVersions, version);
+            generation = new Generation<>(version, attachedIndex, attachedIds, ascendingIds.length,
+                    attachedVersions, ascendingIds.length, records);
+        }
+    }
+
+    // The generation after published with the given ids deleted, or published itself when none of them is live
+    private Generation<R> without(Generation<R> published, long[] ids) {
+        long[] versions = null;
+        long[] deletedIds = new long[ids.length];
+        int[] deletedRecords = new int[ids.length];
+        int deleted = 0;
+        for (long id : ids) {
+            int recordNumber = published.recordNumber(id);
+            if (recordNumber == LongIntHashIndex.NOT_FOUND || (versions != null && versions[recordNumber] == 0L)) {
+                continue;
+            }
+            if (versions == null) {
+                versions = published.versions.clone();
+            }
+            versions[recordNumber] = 0L;
+            deletedRecords[deleted] = recordNumber;
+            deletedIds[deleted++] = id;
+        }
+        if (deleted == 0) {
+            return published;
+        }
+        R records = releaseRecords(published.records, Arrays.copyOf(deletedRecords, deleted));
+        long[] ascending = Arrays.copyOf(deletedIds, deleted);
+        Arrays.sort(ascending);
+        return new Generation<>(published.catalogVersion + 1, published.index,
+                removeSortedIds(published.sortedIds, published.size, ascending), published.size - deleted,
+                versions, published.slots, records);
+    }
+
+    private Generation<R> next(Generation<R> published, Product[] products) {
+        products = lastWritePerId(products);
+        int slots = published.slots;
+        int[] recordNumbers = new int[products.length];
+        // Ids getting a new slot, and ids joining the sorted ids: new ones plus deleted ones coming back
+        long[] slottedIds = new long[products.length];
+        long[] liveIds = new long[products.length];
+        int slotted = 0;
+        int live = 0;
+        boolean updatesPublished = false;
+        for (int i = 0; i < products.length; i++) {
+            long id = products[i].getId();
+            int recordNumber = published.slot(id);
+            if (recordNumber == LongIntHashIndex.NOT_FOUND) {
+                recordNumber = slots + slotted;
+                slottedIds[slotted++] = id;
+                liveIds[live++] = id;
+            } else {
+                if (published.versions[recordNumber] == 0L) {
+                    liveIds[live++] = id;
+                }
+                updatesPublished = true;
+            }
+            recordNumbers[i] = recordNumber;
+        }
+
+        // The one step that may reject the batch, done before anything shared is touched
+        R records = writeRecords(published.records, slots, recordNumbers, products);
+
+        // The whole batch is one catalog change
+        long version = published.catalogVersion + 1;
+        int nextSlots = slots + slotted;
+        long[] versions = updatesPublished
+                ? Arrays.copyOf(published.versions, Math.max(nextSlots, published.versions.length))
+                : ensureCapacity(published.versions, nextSlots);
+        for (int recordNumber : recordNumbers) {
+            versions[recordNumber] = version;
+        }
+        for (int i = 0; i < slotted; i++) {
+            published.index.put(slottedIds[i], slots + i);
+        }
+        long[] sortedIds = published.sortedIds;
+        if (live > 0) {
+            long[] ascending = Arrays.copyOf(liveIds, live);
+            Arrays.sort(ascending);
+            sortedIds = mergeSortedIds(published.sortedIds, published.size, ascending);
+        }
+        return new Generation<>(version, published.index, sortedIds, published.size + live, versions, nextSlots, records);
+    }
+
+    // The last write wins when an id repeats within a batch, so every record number is written once
+    private static Product[] lastWritePerId(Product[] products) {
+        Map<Long, Integer> positions = new HashMap<>(products.length * 2);
+        for (int i = 0; i < products.length; i++) {
+            positions.put(products[i].getId(), i);
+        }
+        if (positions.size() == products.length) {
+            return products;
+        }
+        Product[] unique = new Product[positions.size()];
+        int count = 0;
+        for (int i = 0; i < products.length; i++) {
+            if (positions.get(products[i].getId()) == i) {
+                unique[count++] = products[i];
+            }
+        }
+        return unique;
+    }
+
+    // Appends in place when every new id sorts after the published ones, which is the common case since ids are
+    // allocated in ascending order; otherwise merges into a new array
+    private static long[] mergeSortedIds(long[] ids, int size, long[] addedIds) {
+        if (size == 0 || addedIds[0] > ids[size - 1]) {
+            long[] appended = ensureCapacity(ids, size + addedIds.length);
+            System.arraycopy(addedIds, 0, appended, size, addedIds.length);
+            return appended;
+        }
+        long[] merged = new long[Math.max(ids.length, size + addedIds.length)];
+        int left = 0;
+        int right = 0;
+        int position = 0;
+        while (left < size && right < addedIds.length) {
+            merged[position++] = ids[left] < addedIds[right] ? ids[left++] : addedIds[right++];
+        }
+        System.arraycopy(ids, left, merged, position, size - left);
+        System.arraycopy(addedIds, right, merged, position + size - left, addedIds.length - right);
+        return merged;
+    }
+
+    private static long[] removeSortedIds(long[] ids, int size, long[] removedIds) {
+        long[] kept = new long[ids.length];
+        int count = 0;
+        int removed = 0;
+        for (int i = 0; i < size; i++) {
+            if (removed < removedIds.length && ids[i] == removedIds[removed]) {
+                removed++;
+            } else {
+                kept[count++] = ids[i];
+            }
+        }
+        return kept;
+    }
+
+    // Product references of the next generation: a copy when a published slot changes, otherwise the published
+    // array itself, grown if needed, with the new products appended past the published slots
+    protected static Product[] writeProducts(Product[] published, int publishedSlots, int[] recordNumbers,
+                                             Product[] products) {
+        int required = 0;
+        for (int recordNumber : recordNumbers) {
+            required = Math.max(required, recordNumber + 1);
+        }
+        Product[] written = ensureCapacity(published, required);
+        for (int i = 0; i < products.length; i++) {
+            if (recordNumbers[i] < publishedSlots && written == published) {
+                written = published.clone();
+            }
+            written[recordNumbers[i]] = products[i];
+        }
+        return written;
+    }
+
+    // Same array when it already has room: slots past the published ones are not visible to readers
+    protected static long[] ensureCapacity(long[] array, int required) {
+        return required <= array.length ? array : Arrays.copyOf(array, Math.max(required, array.length << 1));
+    }
+
+    protected static <T> T[] ensureCapacity(T[] array, int required) {
+        return required <= array.length ? array : Arrays.copyOf(array, Math.max(required, Math.max(16, array.length << 1)));
+    }
+
+    private static int upperBound(long[] ids, int count, long id) {
+        int position = Arrays.binarySearch(ids, 0, count, id);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    // Frozen copies, so the caller can keep changing its own instances without touching the store
+    private static Product[] frozenCopies(Collection<Product> products) {
+        Product[] frozen = new Product[products.size()];
+        int i = 0;
+        for (Product product : products) {
+            requireId(product);
+            frozen[i++] = product.isFrozen() ? product : product.copy().freeze();
+        }
+        return frozen;
+    }
+
+    private static Product requireId(Product product) {
+        if (product == null || product.getId() == null) {
+            throw new IllegalArgumentException("Product and product id must not be null");
+        }
+        return product;
+    }
+
+    // Built as a private chain of generations that no reader can reach, so staging never copies on write and the
+    // published catalog is only touched by the final swap
+    private final class StagedCatalog implements CatalogReplacement {
+
+        private Generation<R> staged = new Generation<>(0L, new LongIntHashIndex(1024), new long[16], 0,
+                new long[16], 0, emptyRecords());
+        private boolean committed;
+
+        @Override
+        public synchronized void addAll(Collection<Product> products) {
+            checkOpen();
+            Product[] frozen = frozenCopies(products);
+            if (frozen.length > 0) {
+                staged = next(staged, frozen);
+            }
+        }
+
+        @Override
+        public synchronized void removeAll(long[] ids) {
+            checkOpen();
+            staged = without(staged, ids);
+        }
+
+        // Compares every staged product with the published one under the write lock, so no save slips in between
+        // the comparison and the swap; readers keep using the published generation until the single write
+        @Override
+        public synchronized CatalogChanges commit() {
+            checkOpen();
+            committed = true;
+            synchronized (writeLock) {
+                Generation<R> published = generation;
+                long version = published.catalogVersion + 1;
+                long[] versions = staged.versions;
+                long added = 0;
+                long changed = 0;
+                for (int position = 0; position < staged.size; position++) {
+                    long id = staged.sortedIds[position];
+                    int recordNumber = staged.index.get(id);
+                    int publishedNumber = published.recordNumber(id);
+                    if (publishedNumber == LongIntHashIndex.NOT_FOUND) {
+                        added++;
+                        versions[recordNumber] = version;
+                    } else if (published.records.read(publishedNumber).equals(staged.records.read(recordNumber))) {
+                        versions[recordNumber] = published.versions[publishedNumber];
+                    } else {
+                        changed++;
+                        versions[recordNumber] = version;
+                    }
+                }
+                long unchanged = staged.size - added - changed;
+                generation = new Generation<>(version, staged.index, staged.sortedIds, staged.size, versions,
+                        staged.slots, staged.records);
+                return new CatalogChanges(added, changed, published.size - changed - unchanged, unchanged);
+            }
+        }
+
+        private void checkOpen() {
+            if (committed) {
+                throw new IllegalStateException("Catalog replacement already committed");
+            }
+        }
+    }
+
+    // sortedIds holds the size live ids; slots counts the record numbers handed out, deleted ones included
+    private record Generation<R extends Records>(long catalogVersion, LongIntHashIndex index, long[] sortedIds, int size,
+                                                 long[] versions, int slots, R records) {
+
+        // Record number of a live product, or NOT_FOUND when the id is missing or deleted
+        int recordNumber(long id) {
+            int recordNumber = slot(id);
+            return recordNumber == LongIntHashIndex.NOT_FOUND || versions[recordNumber] == 0L
+                    ? LongIntHashIndex.NOT_FOUND : recordNumber;
+        }
+
+        // Ids added by a later generation are already in the shared index, past this generation's slots
+        int slot(long id) {
+            int recordNumber = index.get(id);
+            return recordNumber >= 0 && recordNumber < slots ? recordNumber : LongIntHashIndex.NOT_FOUND;
+        }
+    }
+}
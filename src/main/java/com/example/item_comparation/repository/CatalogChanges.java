@@ -0,0 +1,9 @@
+package com.example.item_comparation.repository;
+
+// What a catalog replacement did to the stored products, compared by content
+public record CatalogChanges(long added, long changed, long removed, long unchanged) {
+
+    public long products() {
+        return added + changed + unchanged;
+    }
+}
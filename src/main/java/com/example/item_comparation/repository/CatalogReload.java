@@ -0,0 +1,8 @@
+package com.example.item_comparation.repository;
+
+import java.time.Instant;
+
+// Outcome of one DataLoader.reload: products read from the catalog files and what they changed in the store
+public record CatalogReload(String trigger, long productsRead, CatalogChanges changes, long durationMs,
+                            Instant completedAt) {
+}
@@ -0,0 +1,17 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+
+import java.util.Collection;
+
+// A catalog being staged by ProductRepository.beginReplacement. Batches may be added from several threads; an id
+// added twice keeps its last content. Commit may be called once.
+public interface CatalogReplacement {
+
+    void addAll(Collection<Product> products);
+
+    // Drops products from the staged catalog, whether they came from addAll or not; unknown ids are ignored
+    void removeAll(long[] ids);
+
+    CatalogChanges commit();
+}
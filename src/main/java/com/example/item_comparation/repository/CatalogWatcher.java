@@ -0,0 +1,116 @@
+package com.example.item_comparation.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Reloads the catalog when one of its files is written or replaced on disk. A single copy or save usually fires
+// several events, so they are coalesced until the files have been quiet for the debounce interval. Only starts
+// once the application is ready, so it never races the startup load.
+@Component
+@ConditionalOnProperty(name = "products.catalog.watch.enabled", havingValue = "true")
+public class CatalogWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogWatcher.class);
+
+    private final DataLoader dataLoader;
+    private final long debounceMillis;
+    private WatchService watchService;
+
+    public CatalogWatcher(DataLoader dataLoader, @Value("${products.catalog.watch.debounce-ms:500}") long debounceMillis) {
+        this.dataLoader = dataLoader;
+        this.debounceMillis = debounceMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        List<Path> files = dataLoader.catalogFiles();
+        if (files.isEmpty()) {
+            log.warn("Catalog watch is enabled but no catalog shard is a plain file, nothing to watch");
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new HashSet<>();
+        for (Path file : files) {
+            if (directories.add(file.getParent())) {
+                file.getParent().register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+        WatchService service = watchService;
+        Thread thread = new Thread(() -> watch(service, Set.copyOf(files)), "catalog-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching {} catalog file(s) for changes", files.size());
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+
+    private void watch(WatchService service, Set<Path> files) {
+        try {
+            while (true) {
+                boolean changed = drain(service.take(), files);
+                WatchKey next;
+                while ((next = service.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(next, files);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException exception) {
+            // Stopped
+        }
+    }
+
+    private static boolean drain(WatchKey key, Set<Path> files) {
+        Path directory = (Path) key.watchable();
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // Lost events may have touched a catalog file
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || files.contains(directory.resolve((Path) event.context()))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload() {
+        try {
+            dataLoader.reload("watch");
+        } catch (RuntimeException exception) {
+            log.error("Catalog reload after a file change failed, keeping the current catalog: {}", exception.getMessage(), exception);
+        }
+    }
+}
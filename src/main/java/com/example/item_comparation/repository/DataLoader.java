@@ -3,40 +3,299 @@ package com.example.item_comparation.repository;
 import com.example.item_comparation.domain.Product;
 import com.example.item_comparation.exception.DataLoadException;
 import com.example.item_comparation.service.ProductsService;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Component
 public class DataLoader implements CommandLineRunner {
 
+    private static final Logger log = LoggerFactory.getLogger(DataLoader.class);
+
+    static final int DEFAULT_BATCH_SIZE = 1000;
+
     private final ProductsService productsService;
+    private final Resource[] catalogShards;
+    private final int batchSize;
+    private final int parallelism;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MappedSnapshotProductRepository snapshotRepository;
+    private final MeterRegistry meterRegistry;
+    private final boolean virtualThreads;
+    private final AtomicLong lastLoadThroughput = new AtomicLong();
+    private volatile CatalogReload lastReload;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     public DataLoader(ProductsService productsService) {
+        this(productsService, new ClassPathResource("products.json"), DEFAULT_BATCH_SIZE);
+    }
+
+    public DataLoader(ProductsService productsService, Resource catalog, int batchSize) {
+        this(productsService, new Resource[]{catalog}, batchSize, 1, null, null);
+    }
+
+    public DataLoader(ProductsService productsService, Resource[] catalogShards, int batchSize, int parallelism,
+                      ApplicationEventPublisher eventPublisher, MappedSnapshotProductRepository snapshotRepository) {
+        this(productsService, catalogShards, batchSize, parallelism, eventPublisher, snapshotRepository, new SimpleMeterRegistry(), false);
+    }
+
+    // The snapshot repository only exists when products.store.type=snapshot. Virtual threads follow the same switch
+    // as request handling and only take effect on Java 21+, older runtimes keep the fork-join pool.
+    @Autowired
+    public DataLoader(ProductsService productsService,
+                      @Value("${products.catalog.location:classpath:products.json}") Resource[] catalogShards,
+                      @Value("${products.catalog.batch-size:" + DEFAULT_BATCH_SIZE + "}") int batchSize,
+                      @Value("${products.catalog.parallelism:0}") int parallelism,
+                      ApplicationEventPublisher eventPublisher,
+                      @Nullable MappedSnapshotProductRepository snapshotRepository,
+                      MeterRegistry meterRegistry,
+                      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
         this.productsService = productsService;
+        this.catalogShards = catalogShards;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.eventPublisher = eventPublisher;
+        this.snapshotRepository = snapshotRepository;
+        this.meterRegistry = meterRegistry;
+        this.virtualThreads = virtualThreads && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+        Gauge.builder("products.catalog.load.throughput", lastLoadThroughput, AtomicLong::get)
+                .description("Products per second reached by the last catalog load")
+                .baseUnit("products/s")
+                .strongReference(true)
+                .register(meterRegistry);
     }
 
     @Override
     public void run(String... args) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        TypeReference<List<Product>> typeReference = new TypeReference<>() {};
+        if (catalogShards == null || catalogShards.length == 0) {
+            throw new DataLoadException("No product json file found to load", null);
+        }
+        // Keep the instance out of the load balancer until every shard is in the store
+        publishReadiness(ReadinessState.REFUSING_TRAFFIC);
+
+        long start = System.nanoTime();
+        Long fingerprint = snapshotFingerprint();
+        if (fingerprint != null && openSnapshot(fingerprint)) {
+            productsService.syncWithStore();
+            long elapsedNanos = Math.max(1L, System.nanoTime() - start);
+            recordLoad("snapshot", snapshotRepository.size(), elapsedNanos);
+            log.info("Product snapshot opened: {} products from {} in {} ms",
+                    snapshotRepository.size(), snapshotRepository.snapshotPath(), elapsedNanos / 1_000_000);
+            publishReadiness(ReadinessState.ACCEPTING_TRAFFIC);
+            return;
+        }
+
+        long loaded = load(productsService::saveAll);
+        long elapsedNanos = Math.max(1L, System.nanoTime() - start);
+        recordLoad("json", loaded, elapsedNanos);
+
+        log.info("JSON products loaded: {} products from {} shard(s) in {} ms ({} products/s)",
+                loaded, catalogShards.length, elapsedNanos / 1_000_000, loaded * 1_000_000_000L / elapsedNanos);
+        if (fingerprint != null) {
+            writeSnapshot(fingerprint);
+        }
+        publishReadiness(ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    // Re-reads the catalog files into a staged catalog through the same load path while the current catalog keeps
+    // serving, then swaps it in. One reload runs at a time; a failed one leaves the current catalog in place.
+    public synchronized CatalogReload reload(String trigger) {
+        long start = System.nanoTime();
+        Long fingerprint = snapshotFingerprint();
+        CatalogReplacement replacement = productsService.beginCatalogReplacement();
+        long loaded = load(replacement::addAll);
+        CatalogChanges changes = replacement.commit();
+        long elapsedNanos = Math.max(1L, System.nanoTime() - start);
+        recordLoad("reload", loaded, elapsedNanos);
+        recordChange("added", changes.added());
+        recordChange("changed", changes.changed());
+        recordChange("removed", changes.removed());
+
+        log.info("Catalog reloaded ({}): {} products in {} ms, {} added, {} changed, {} removed, {} unchanged",
+                trigger, changes.products(), elapsedNanos / 1_000_000,
+                changes.added(), changes.changed(), changes.removed(), changes.unchanged());
+        if (fingerprint != null) {
+            // The reloaded catalog is served from the heap overlay until the next restart maps the new snapshot
+            writeSnapshot(fingerprint);
+        }
+        CatalogReload reload = new CatalogReload(trigger, loaded, changes, elapsedNanos / 1_000_000, Instant.now());
+        lastReload = reload;
+        return reload;
+    }
+
+    // Null until the first reload
+    public CatalogReload lastReload() {
+        return lastReload;
+    }
+
+    // File system locations of the catalog shards; shards that are not plain files, e.g. inside a jar, are left out
+    public List<Path> catalogFiles() {
+        List<Path> files = new ArrayList<>(catalogShards.length);
+        for (Resource shard : catalogShards) {
+            if (shard.isFile()) {
+                try {
+                    files.add(shard.getFile().toPath().toAbsolutePath());
+                } catch (IOException exception) {
+                    log.warn("Catalog shard {} has no file path: {}", shard.getDescription(), exception.getMessage());
+                }
+            }
+        }
+        return files;
+    }
+
+    protected InputStream openProductsInputStream(Resource shard) throws IOException {
+        return shard.getInputStream();
+    }
 
-        try (InputStream inputStream = openProductsInputStream()) {
-            List<Product> products = mapper.readValue(inputStream, typeReference);
-            productsService.saveAll(products);
-            System.out.println("JSON products loaded!");
+    private long load(Consumer<List<Product>> sink) {
+        return catalogShards.length == 1 ? loadShard(catalogShards[0], sink) : loadShardsInParallel(sink);
+    }
+
+    private long loadShardsInParallel(Consumer<List<Product>> sink) {
+        int workers = Math.min(parallelism, catalogShards.length);
+        if (virtualThreads) {
+            // One virtual thread per shard, capped so no more shards are parsed at once than with the pool
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("catalog-loader-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(workers);
+            return loadShards(executor, sink);
+        }
+        ExecutorService pool = new ForkJoinPool(workers);
+        try {
+            return loadShards(pool, sink);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private long loadShards(Executor executor, Consumer<List<Product>> sink) {
+        List<CompletableFuture<Long>> tasks = new ArrayList<>(catalogShards.length);
+        for (Resource shard : catalogShards) {
+            tasks.add(CompletableFuture.supplyAsync(() -> loadShard(shard, sink), executor));
+        }
+        long loaded = 0;
+        for (CompletableFuture<Long> task : tasks) {
+            try {
+                loaded += task.join();
+            } catch (CompletionException exception) {
+                if (exception.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw exception;
+            }
+        }
+        return loaded;
+    }
+
+    private long loadShard(Resource shard, Consumer<List<Product>> sink) {
+        ProductCatalogReader reader = new ProductCatalogReader(objectMapper, batchSize);
+
+        try (InputStream inputStream = openProductsInputStream(shard)) {
+            return reader.read(inputStream, sink);
         } catch (IOException exception){
-            throw new DataLoadException("Unable to load product json file: " + exception.getMessage(), exception);
+            throw new DataLoadException("Unable to load product json file " + shard.getDescription() + ": " + exception.getMessage(), exception);
+        }
+    }
+
+    // Names the catalog files by location, modification time and size. The JSON files stay the source of truth:
+    // a snapshot is only trusted when it was written from the same files. Its price units depend on the configured
+    // price scale, so the scale is part of the fingerprint too.
+    private Long snapshotFingerprint() {
+        if (snapshotRepository == null) {
+            return null;
+        }
+        try {
+            long fingerprint = 17 + productsService.priceScale().scale();
+            for (Resource shard : catalogShards) {
+                fingerprint = 31 * fingerprint + shard.getDescription().hashCode();
+                fingerprint = 31 * fingerprint + shard.lastModified();
+                fingerprint = 31 * fingerprint + shard.contentLength();
+            }
+            return fingerprint;
+        } catch (IOException exception) {
+            log.warn("Product snapshot disabled, catalog files cannot be fingerprinted: {}", exception.getMessage());
+            return null;
         }
     }
 
-    protected InputStream openProductsInputStream() throws IOException {
-        return new ClassPathResource("products.json").getInputStream();
+    private boolean openSnapshot(long fingerprint) {
+        try {
+            return snapshotRepository.openSnapshot(fingerprint);
+        } catch (IOException exception) {
+            log.warn("Ignoring unreadable product snapshot {}: {}", snapshotRepository.snapshotPath(), exception.getMessage());
+            return false;
+        }
+    }
+
+    // A failed snapshot only costs the next restart a JSON parse, so it must not fail this one
+    private void writeSnapshot(long fingerprint) {
+        try {
+            snapshotRepository.writeSnapshot(fingerprint);
+            log.info("Product snapshot written to {}", snapshotRepository.snapshotPath());
+        } catch (IOException exception) {
+            log.warn("Unable to write product snapshot {}: {}", snapshotRepository.snapshotPath(), exception.getMessage());
+        }
+    }
+
+    private void recordLoad(String source, long products, long elapsedNanos) {
+        Timer.builder("products.catalog.load")
+                .description("Catalog load duration, from a JSON parse or a snapshot mapping")
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        Counter.builder("products.catalog.loaded")
+                .description("Products loaded into the store, at startup or by a reload")
+                .baseUnit("products")
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment(products);
+        lastLoadThroughput.set(products * 1_000_000_000L / elapsedNanos);
+    }
+
+    private void recordChange(String change, long products) {
+        Counter.builder("products.catalog.reload.changes")
+                .description("Products added, changed or removed by catalog reloads")
+                .baseUnit("products")
+                .tag("change", change)
+                .register(meterRegistry)
+                .increment(products);
+    }
+
+    private void publishReadiness(ReadinessState state) {
+        if (eventPublisher != null) {
+            AvailabilityChangeEvent.publish(eventPublisher, this, state);
+        }
     }
-}
\ No newline at end of file
+}
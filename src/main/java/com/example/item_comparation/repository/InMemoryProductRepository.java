@@ -0,0 +1,46 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@ConditionalOnProperty(name = "products.store.type", havingValue = "heap", matchIfMissing = true)
+public class InMemoryProductRepository extends AbstractIndexedProductRepository<InMemoryProductRepository.HeapRecords> {
+
+    public InMemoryProductRepository() {
+        this(1024);
+    }
+
+    public InMemoryProductRepository(int expectedSize) {
+        super(expectedSize, new HeapRecords(new Product[Math.max(16, expectedSize)], 0L));
+    }
+
+    @Override
+    protected HeapRecords emptyRecords() {
+        return new HeapRecords(new Product[16], 0L);
+    }
+
+    @Override
+    protected HeapRecords writeRecords(HeapRecords published, int publishedSlots, int[] recordNumbers, Product[] products) {
+        long productBytes = published.productBytes;
+        for (int i = 0; i < products.length; i++) {
+            Product previous = recordNumbers[i] < publishedSlots ? published.products[recordNumbers[i]] : null;
+            productBytes += ProductFootprint.estimate(products[i]) - (previous == null ? 0 : ProductFootprint.estimate(previous));
+        }
+        return new HeapRecords(writeProducts(published.products, publishedSlots, recordNumbers, products), productBytes);
+    }
+
+    record HeapRecords(Product[] products, long productBytes) implements Records {
+
+        @Override
+        public Product read(int recordNumber) {
+            return products[recordNumber];
+        }
+
+        @Override
+        public long bytes() {
+            return (long) products.length * ProductFootprint.REFERENCE_BYTES + productBytes;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.item_comparation.repository;
+
+// Open-addressing map from primitive long keys to int values, so lookups never box the key. One writer at a time;
+// readers may race with it and miss an entry being inserted, so callers must tell published values apart themselves.
+final class LongIntHashIndex {
+
+    static final int NOT_FOUND = -1;
+
+    private static final float MAX_LOAD = 0.5f;
+
+    // Keys and values live in one immutable holder so a resize is published as a single field write
+    private static final class Table {
+        final long[] keys;
+        final int[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            java.util.Arrays.fill(values, NOT_FOUND);
+        }
+    }
+
+    // Volatile so a resized table is seen whole by readers racing with the writer
+    private volatile Table table;
+    private int size;
+
+    LongIntHashIndex(int expectedSize) {
+        table = new Table(capacityFor(expectedSize));
+    }
+
+    int get(long key) {
+        Table t = table;
+        int slot = hash(key) & t.mask;
+        while (t.values[slot] != NOT_FOUND) {
+            if (t.keys[slot] == key) {
+                return t.values[slot];
+            }
+            slot = (slot + 1) & t.mask;
+        }
+        return NOT_FOUND;
+    }
+
+    void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative");
+        }
+        if (size + 1 > table.keys.length * MAX_LOAD) {
+            resize(table.keys.length << 1);
+        }
+        if (insert(table, key, value)) {
+            size++;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long footprintBytes() {
+        return (long) table.keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private void resize(int capacity) {
+        Table old = table;
+        Table resized = new Table(capacity);
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.values[i] != NOT_FOUND) {
+                insert(resized, old.keys[i], old.values[i]);
+            }
+        }
+        table = resized;
+    }
+
+    // Returns true when the key was not present before
+    private static boolean insert(Table t, long key, int value) {
+        int slot = hash(key) & t.mask;
+        while (t.values[slot] != NOT_FOUND) {
+            if (t.keys[slot] == key) {
+                t.values[slot] = value;
+                return false;
+            }
+            slot = (slot + 1) & t.mask;
+        }
+        // Key first: a reader that sees the value must also see the key it belongs to
+        t.keys[slot] = key;
+        t.values[slot] = value;
+        return true;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * MAX_LOAD < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Serves reads straight from a memory-mapped ProductSnapshot. Products saved after the snapshot was opened,
+// including new versions of snapshot rows, live in a heap overlay indexed by record number.
+@Repository
+@ConditionalOnProperty(name = "products.store.type", havingValue = "snapshot")
+public class MappedSnapshotProductRepository
+        extends AbstractIndexedProductRepository<MappedSnapshotProductRepository.SnapshotRecords> {
+
+    private final Path snapshotPath;
+
+    public MappedSnapshotProductRepository(@Value("${products.snapshot.path:data/products.snapshot}") Path snapshotPath) {
+        super(1024, new SnapshotRecords(null, new Product[0], 0L));
+        this.snapshotPath = snapshotPath;
+    }
+
+    public Path snapshotPath() {
+        return snapshotPath;
+    }
+
+    // Maps the snapshot file when it exists and was written from the same source; returns false otherwise
+    public boolean openSnapshot(long sourceFingerprint) throws IOException {
+        if (!Files.isRegularFile(snapshotPath)) {
+            return false;
+        }
+        ProductSnapshot opened = ProductSnapshot.open(snapshotPath);
+        if (opened.fingerprint() != sourceFingerprint) {
+            return false;
+        }
+        attachRecords(opened.ids(), new SnapshotRecords(opened, new Product[0], 0L));
+        return true;
+    }
+
+    public void writeSnapshot(long sourceFingerprint) throws IOException {
+        ProductSnapshotWriter.write(snapshotPath, streamFrom(null).iterator(), sourceFingerprint);
+    }
+
+    // A replacement catalog is held in the overlay alone, until a snapshot of it is written and opened
+    @Override
+    protected SnapshotRecords emptyRecords() {
+        return new SnapshotRecords(null, new Product[16], 0L);
+    }
+
+    @Override
+    protected SnapshotRecords writeRecords(SnapshotRecords published, int publishedSlots, int[] recordNumbers, Product[] products) {
+        Product[] overlay = published.overlay;
+        long overlayBytes = published.overlayBytes;
+        for (int i = 0; i < products.length; i++) {
+            int recordNumber = recordNumbers[i];
+            Product previous = recordNumber < publishedSlots && recordNumber < overlay.length ? overlay[recordNumber] : null;
+            overlayBytes += ProductFootprint.estimate(products[i]) - (previous == null ? 0 : ProductFootprint.estimate(previous));
+        }
+        return new SnapshotRecords(published.snapshot,
+                writeProducts(overlay, publishedSlots, recordNumbers, products), overlayBytes);
+    }
+
+    record SnapshotRecords(ProductSnapshot snapshot, Product[] overlay, long overlayBytes) implements Records {
+
+        @Override
+        public Product read(int recordNumber) {
+            if (recordNumber < overlay.length && overlay[recordNumber] != null) {
+                return overlay[recordNumber];
+            }
+            return snapshot.product(recordNumber).freeze();
+        }
+
+        // The mapping is counted whole even though the OS only keeps the touched pages resident
+        @Override
+        public long bytes() {
+            long mapped = snapshot == null ? 0L : snapshot.byteSize();
+            return mapped + (long) overlay.length * ProductFootprint.REFERENCE_BYTES + overlayBytes;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Keeps product data in direct memory chunks; the heap only holds the id index and one offset per product.
+// Records are appended: re-saving a product writes a new record and repoints its offset, and a delete only forgets
+// the offset. The bytes left behind are counted, and once they are at least a chunk and half of what the chunks hold,
+// the next write copies the live records into fresh chunks. Generations already published keep their own chunks
+// until their last reader is gone.
+@Repository
+@ConditionalOnProperty(name = "products.store.type", havingValue = "offheap")
+public class OffHeapProductRepository extends AbstractIndexedProductRepository<OffHeapProductRepository.OffHeapRecords> {
+
+    // Offset of a deleted record's slot
+    private static final long RELEASED = -1L;
+
+    private final int chunkSize;
+
+    public OffHeapProductRepository(@Value("${products.store.offheap.chunk-size-mb:64}") int chunkSizeMb) {
+        this(chunkSizeMb * 1024 * 1024, 1024);
+    }
+
+    public OffHeapProductRepository(int chunkSizeBytes, int expectedSize) {
+        super(expectedSize, new OffHeapRecords(new ByteBuffer[0], new long[Math.max(16, expectedSize)], 0, 0, 0L, 0L,
+                chunkSizeBytes));
+        if (chunkSizeBytes <= 0) {
+            throw new IllegalArgumentException("chunk size must be greater than zero");
+        }
+        this.chunkSize = chunkSizeBytes;
+    }
+
+    public long bytesUsed() {
+        return publishedRecords().bytesUsed();
+    }
+
+    // Bytes of replaced and deleted records still held by the chunks
+    public long deadBytes() {
+        return publishedRecords().deadBytes();
+    }
+
+    @Override
+    protected OffHeapRecords emptyRecords() {
+        return new OffHeapRecords(new ByteBuffer[0], new long[16], 0, 0, 0L, 0L, chunkSize);
+    }
+
+    // New records go past the published write position, which no published offset points beyond, so the chunks
+    // themselves are shared by every generation; only the offsets are copied when a published product changes
+    @Override
+    protected OffHeapRecords writeRecords(OffHeapRecords published, int publishedSlots, int[] recordNumbers, Product[] products) {
+        ByteBuffer[] chunks = published.chunks;
+        long[] offsets = ensureCapacity(published.offsets, publishedSlots + products.length);
+        int slots = publishedSlots;
+        int writePosition = published.writePosition;
+        long bytesUsed = published.bytesUsed;
+        long deadBytes = published.deadBytes;
+        for (int i = 0; i < products.length; i++) {
+            byte[] record = ProductRecordCodec.encode(products[i]);
+            if (record.length > chunkSize) {
+                throw new IllegalArgumentException("Product " + products[i].getId() + " does not fit in an off-heap chunk");
+            }
+            if (chunks.length == 0 || writePosition + record.length > chunkSize) {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = ByteBuffer.allocateDirect(chunkSize);
+                writePosition = 0;
+            }
+            int chunk = chunks.length - 1;
+            chunks[chunk].put(writePosition, record);
+            if (recordNumbers[i] < publishedSlots) {
+                if (offsets == published.offsets) {
+                    offsets = published.offsets.clone();
+                }
+                deadBytes += published.recordLength(recordNumbers[i]);
+            }
+            offsets[recordNumbers[i]] = ((long) chunk << 32) | writePosition;
+            slots = Math.max(slots, recordNumbers[i] + 1);
+            writePosition += record.length;
+            bytesUsed += record.length;
+        }
+        return compactIfMostlyDead(new OffHeapRecords(chunks, offsets, slots, writePosition, bytesUsed, deadBytes, chunkSize));
+    }
+
+    @Override
+    protected OffHeapRecords releaseRecords(OffHeapRecords published, int[] recordNumbers) {
+        long[] offsets = published.offsets.clone();
+        long deadBytes = published.deadBytes;
+        for (int recordNumber : recordNumbers) {
+            deadBytes += published.recordLength(recordNumber);
+            offsets[recordNumber] = RELEASED;
+        }
+        return compactIfMostlyDead(new OffHeapRecords(published.chunks, offsets, published.slots,
+                published.writePosition, published.bytesUsed, deadBytes, chunkSize));
+    }
+
+    // Copies raw record bytes, without decoding them, so a compaction costs one pass over the live data
+    private OffHeapRecords compactIfMostlyDead(OffHeapRecords records) {
+        if (records.deadBytes < chunkSize || records.deadBytes * 2 < records.bytesUsed) {
+            return records;
+        }
+        ByteBuffer[] chunks = new ByteBuffer[0];
+        long[] offsets = new long[records.offsets.length];
+        int writePosition = 0;
+        long bytesUsed = 0L;
+        for (int recordNumber = 0; recordNumber < records.slots; recordNumber++) {
+            long offset = records.offsets[recordNumber];
+            if (offset == RELEASED) {
+                offsets[recordNumber] = RELEASED;
+                continue;
+            }
+            ByteBuffer source = records.chunks[(int) (offset >>> 32)];
+            int length = ProductRecordCodec.recordLength(source, (int) offset);
+            if (chunks.length == 0 || writePosition + length > chunkSize) {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = ByteBuffer.allocateDirect(chunkSize);
+                writePosition = 0;
+            }
+            chunks[chunks.length - 1].put(writePosition, source, (int) offset, length);
+            offsets[recordNumber] = ((long) (chunks.length - 1) << 32) | writePosition;
+            writePosition += length;
+            bytesUsed += length;
+        }
+        return new OffHeapRecords(chunks, offsets, records.slots, writePosition, bytesUsed, 0L, chunkSize);
+    }
+
+    // slots counts the offsets written so far; offsets of deleted records are RELEASED
+    record OffHeapRecords(ByteBuffer[] chunks, long[] offsets, int slots, int writePosition, long bytesUsed,
+                          long deadBytes, int chunkSize) implements Records {
+
+        @Override
+        public Product read(int recordNumber) {
+            long offset = offsets[recordNumber];
+            return ProductRecordCodec.decode(chunks[(int) (offset >>> 32)], (int) offset).freeze();
+        }
+
+        // Whole chunks count, since direct memory is reserved a chunk at a time
+        @Override
+        public long bytes() {
+            return (long) chunks.length * chunkSize + (long) offsets.length * Long.BYTES;
+        }
+
+        int recordLength(int recordNumber) {
+            long offset = offsets[recordNumber];
+            return offset == RELEASED ? 0 : ProductRecordCodec.recordLength(chunks[(int) (offset >>> 32)], (int) offset);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Reads a JSON array of products token by token, so only one batch of products is in memory at a time
+public class ProductCatalogReader {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader productReader;
+    private final int batchSize;
+
+    public ProductCatalogReader(ObjectMapper objectMapper, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than zero");
+        }
+        this.objectMapper = objectMapper;
+        this.productReader = objectMapper.readerFor(Product.class);
+        this.batchSize = batchSize;
+    }
+
+    // Returns the number of products read
+    public long read(InputStream inputStream, Consumer<List<Product>> batchConsumer) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of products");
+            }
+            long count = 0;
+            List<Product> batch = new ArrayList<>(batchSize);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                batch.add(productReader.readValue(parser));
+                count++;
+                if (batch.size() == batchSize) {
+                    batchConsumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new IOException("Expected a product object but found " + parser.currentToken());
+            }
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+            }
+            return count;
+        }
+    }
+}
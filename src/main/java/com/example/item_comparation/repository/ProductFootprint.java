@@ -0,0 +1,38 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+
+// Approximate retained heap of a Product on a 64-bit JVM with compressed references. Strings are counted as
+// Latin-1, and parsed specification attributes as one more copy of the specification text.
+final class ProductFootprint {
+
+    static final int REFERENCE_BYTES = 4;
+
+    private static final int PRODUCT_BYTES = 56;
+    private static final int STRING_BYTES = 40;
+    private static final int PRICE_BYTES = 40;
+    private static final int ATTRIBUTES_BYTES = 64;
+
+    private ProductFootprint() {
+    }
+
+    static long estimate(Product product) {
+        long bytes = PRODUCT_BYTES + Long.BYTES * 2
+                + string(product.getName())
+                + string(product.getImageUrl())
+                + string(product.getDescription())
+                + string(product.getClassification())
+                + string(product.getSpecifications());
+        if (product.getPrice() != null) {
+            bytes += PRICE_BYTES;
+        }
+        if (product.getSpecifications() != null) {
+            bytes += ATTRIBUTES_BYTES + product.getSpecifications().length();
+        }
+        return bytes;
+    }
+
+    private static long string(String value) {
+        return value == null ? 0 : STRING_BYTES + value.length();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Compact binary layout of a product: id, price units, price as scale + unscaled long, then length-prefixed UTF-8
+// strings. A length of -1 marks a null string and a scale of NULL_SCALE a null price.
+final class ProductRecordCodec {
+
+    private static final int NULL_LENGTH = -1;
+    private static final int NULL_SCALE = Integer.MIN_VALUE;
+
+    private ProductRecordCodec() {
+    }
+
+    static byte[] encode(Product product) {
+        BigDecimal price = product.getPrice();
+        if (price != null && (price.scale() == NULL_SCALE || price.unscaledValue().bitLength() > 63)) {
+            throw new IllegalArgumentException("Price of product " + product.getId() + " does not fit a record"); // Throws exception for a price beyond a long
+        }
+        byte[][] strings = {
+                utf8(product.getName()),
+                utf8(product.getImageUrl()),
+                utf8(product.getDescription()),
+                utf8(product.getClassification()),
+                utf8(product.getSpecifications())
+        };
+        int length = 3 * Long.BYTES + Integer.BYTES;
+        for (byte[] string : strings) {
+            length += lengthOf(string);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putLong(product.getId());
+        buffer.putLong(product.getPriceUnits());
+        buffer.putInt(price == null ? NULL_SCALE : price.scale());
+        buffer.putLong(price == null ? 0L : price.unscaledValue().longValue());
+        for (byte[] string : strings) {
+            putBytes(buffer, string);
+        }
+        return buffer.array();
+    }
+
+    static Product decode(ByteBuffer buffer, int offset) {
+        Reader reader = new Reader(buffer, offset);
+        Product product = new Product();
+        product.setId(reader.readLong());
+        long priceUnits = reader.readLong();
+        int scale = reader.readInt();
+        long unscaled = reader.readLong();
+        product.setPrice(scale == NULL_SCALE ? null : BigDecimal.valueOf(unscaled, scale));
+        product.setPriceUnits(priceUnits);
+        product.setName(reader.readString());
+        product.setImageUrl(reader.readString());
+        product.setDescription(reader.readString());
+        product.setClassification(reader.readString());
+        product.setSpecifications(reader.readString());
+        return product;
+    }
+
+    // Bytes taken by the record at offset, read from its string lengths without decoding them
+    static int recordLength(ByteBuffer buffer, int offset) {
+        int position = offset + 3 * Long.BYTES + Integer.BYTES;
+        for (int string = 0; string < 5; string++) {
+            int length = buffer.getInt(position);
+            position += Integer.BYTES + (length == NULL_LENGTH ? 0 : length);
+        }
+        return position - offset;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int lengthOf(byte[] bytes) {
+        return Integer.BYTES + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(NULL_LENGTH);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    // Absolute reads only, so concurrent readers can share the same buffer without touching its position
+    private static final class Reader {
+        private final ByteBuffer buffer;
+        private int position;
+
+        Reader(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        long readLong() {
+            long value = buffer.getLong(position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        int readInt() {
+            int value = buffer.getInt(position);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        byte[] readBytes() {
+            int length = readInt();
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return bytes;
+        }
+
+        String readString() {
+            byte[] bytes = readBytes();
+            return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
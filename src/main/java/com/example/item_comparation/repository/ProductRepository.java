@@ -0,0 +1,48 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+
+import java.util.Collection;
+import java.util.stream.Stream;
+
+public interface ProductRepository {
+
+    // Returns null when there is no product with the given id
+    Product findById(long id);
+
+    // Multi-get under a single consistent read; slot i holds the product for ids[i], or null when missing
+    Product[] findAllById(long[] ids);
+
+    // Version of the stored product, or 0 when missing. Every write bumps the catalog version and stamps it on
+    // the products it stored, so versions only grow and a changed product always gets a new one.
+    long versionOf(long id);
+
+    long[] versionsOf(long[] ids);
+
+    long catalogVersion();
+
+    // The product id must already be assigned, an existing product with the same id is replaced
+    void save(Product product);
+
+    // Applies the whole batch under a single write, so readers never pay one lock round per product
+    void saveAll(Collection<Product> products);
+
+    // Removes the products with the given ids under a single write, ignoring ids that are not stored; returns how
+    // many were removed
+    int deleteAll(long[] ids);
+
+    // Starts building a whole new catalog off to the side. Nothing staged is visible until commit, which swaps it in
+    // as one catalog version in place of everything stored; products whose content did not change keep their version.
+    CatalogReplacement beginReplacement();
+
+    // Lazily walks the products in ascending id order, starting after the given id (or from the first one when null)
+    Stream<Product> streamFrom(Long afterId);
+
+    int size();
+
+    // Highest stored id, or 0 when the store is empty
+    long maxId();
+
+    // Rough footprint of the stored catalog in bytes, heap and off-heap, meant for sizing rather than accounting
+    long estimatedMemoryBytes();
+}
@@ -0,0 +1,35 @@
+package com.example.item_comparation.repository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Store gauges, sampled on scrape: product count and the estimated footprint for sizing pods per backend
+@Component
+public class ProductRepositoryMetrics implements MeterBinder {
+
+    private final ProductRepository repository;
+    private final String backend;
+
+    public ProductRepositoryMetrics(ProductRepository repository, @Value("${products.store.type:heap}") String backend) {
+        this.repository = repository;
+        this.backend = backend;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("products.store.size", repository, ProductRepository::size)
+                .description("Products held by the store")
+                .baseUnit("products")
+                .tag("backend", backend)
+                .register(registry);
+        Gauge.builder("products.store.memory", repository, ProductRepository::estimatedMemoryBytes)
+                .description("Estimated heap and off-heap bytes held by the store")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("backend", backend)
+                .register(registry);
+    }
+}
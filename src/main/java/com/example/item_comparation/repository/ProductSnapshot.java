@@ -0,0 +1,125 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only view over a snapshot file mapped into memory. Layout, all big-endian:
+//   header  : magic, version, count, reserved, source fingerprint, string heap size
+//   columns : id (long) | price units (long) | unscaled price (long) | price scale (byte, NULL_SCALE for null)
+//             | 5 string offsets (int)
+//   heap    : length-prefixed UTF-8 strings referenced by the offsets, -1 meaning null
+// Products are decoded on demand, nothing is copied onto the heap when the file is opened.
+public final class ProductSnapshot {
+
+    static final int MAGIC = 0x50534E50; // "PSNP"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 32;
+    static final int STRING_COLUMNS = 5;
+    static final byte NULL_SCALE = Byte.MIN_VALUE;
+    static final int NULL_OFFSET = -1;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final long fingerprint;
+    private final int idColumn;
+    private final int unitsColumn;
+    private final int priceColumn;
+    private final int scaleColumn;
+    private final int stringColumn;
+    private final int heap;
+
+    private ProductSnapshot(MappedByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a product snapshot or unsupported version");
+        }
+        this.buffer = buffer;
+        this.count = buffer.getInt(8);
+        this.fingerprint = buffer.getLong(16);
+        long heapSize = buffer.getLong(24);
+        this.idColumn = HEADER_BYTES;
+        this.unitsColumn = idColumn + count * Long.BYTES;
+        this.priceColumn = unitsColumn + count * Long.BYTES;
+        this.scaleColumn = priceColumn + count * Long.BYTES;
+        this.stringColumn = scaleColumn + count;
+        this.heap = stringColumn + count * STRING_COLUMNS * Integer.BYTES;
+        if (count < 0 || heap + heapSize != buffer.capacity()) {
+            throw new IOException("Truncated product snapshot");
+        }
+    }
+
+    public static ProductSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Product snapshot larger than 2GB");
+            }
+            // The mapping stays valid after the channel is closed
+            return new ProductSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long byteSize() {
+        return buffer.capacity();
+    }
+
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    public long id(int row) {
+        return buffer.getLong(idColumn + row * Long.BYTES);
+    }
+
+    public long[] ids() {
+        long[] ids = new long[count];
+        for (int row = 0; row < count; row++) {
+            ids[row] = id(row);
+        }
+        return ids;
+    }
+
+    public Product product(int row) {
+        Product product = new Product();
+        product.setId(id(row));
+        byte scale = buffer.get(scaleColumn + row);
+        if (scale != NULL_SCALE) {
+            product.setPrice(BigDecimal.valueOf(buffer.getLong(priceColumn + row * Long.BYTES), scale));
+        }
+        product.setPriceUnits(buffer.getLong(unitsColumn + row * Long.BYTES));
+        int strings = stringColumn + row * STRING_COLUMNS * Integer.BYTES;
+        product.setName(string(buffer.getInt(strings)));
+        product.setImageUrl(string(buffer.getInt(strings + Integer.BYTES)));
+        product.setDescription(string(buffer.getInt(strings + 2 * Integer.BYTES)));
+        product.setClassification(string(buffer.getInt(strings + 3 * Integer.BYTES)));
+        product.setSpecifications(string(buffer.getInt(strings + 4 * Integer.BYTES)));
+        return product;
+    }
+
+    private String string(int offset) {
+        if (offset == NULL_OFFSET) {
+            return null;
+        }
+        int position = heap + offset;
+        int length = buffer.getInt(position);
+        byte[] bytes = new byte[length];
+        buffer.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static ByteBuffer header(int count, long fingerprint, long heapSize) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0).putLong(fingerprint).putLong(heapSize);
+        return header.flip();
+    }
+}
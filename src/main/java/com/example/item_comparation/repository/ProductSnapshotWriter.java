@@ -0,0 +1,113 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Writes products in id order into the ProductSnapshot layout. Every column is streamed to its own temporary
+// file so memory stays constant, then the parts are concatenated and atomically moved over the target.
+public final class ProductSnapshotWriter {
+
+    private ProductSnapshotWriter() {
+    }
+
+    public static void write(Path target, Iterator<Product> products, long fingerprint) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        List<Path> parts = new ArrayList<>();
+        try {
+            for (int i = 0; i < 6; i++) {
+                parts.add(Files.createTempFile(directory, "snapshot-part", ".tmp"));
+            }
+            int count = 0;
+            long heapSize;
+            try (DataOutputStream ids = open(parts.get(0));
+                 DataOutputStream units = open(parts.get(1));
+                 DataOutputStream prices = open(parts.get(2));
+                 DataOutputStream scales = open(parts.get(3));
+                 DataOutputStream offsets = open(parts.get(4));
+                 DataOutputStream heap = open(parts.get(5))) {
+                while (products.hasNext()) {
+                    Product product = products.next();
+                    ids.writeLong(product.getId());
+                    units.writeLong(product.getPriceUnits());
+                    writePrice(product, prices, scales);
+                    writeString(product.getName(), offsets, heap);
+                    writeString(product.getImageUrl(), offsets, heap);
+                    writeString(product.getDescription(), offsets, heap);
+                    writeString(product.getClassification(), offsets, heap);
+                    writeString(product.getSpecifications(), offsets, heap);
+                    count++;
+                }
+                heapSize = heap.size();
+            }
+
+            Path temporary = Files.createTempFile(directory, "snapshot", ".tmp");
+            parts.add(temporary);
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                out.write(ProductSnapshot.header(count, fingerprint, heapSize));
+                for (Path part : parts.subList(0, 6)) {
+                    try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                        long position = 0;
+                        while (position < in.size()) {
+                            position += in.transferTo(position, in.size() - position, out);
+                        }
+                    }
+                }
+                if (out.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Product snapshot larger than 2GB");
+                }
+                out.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    private static DataOutputStream open(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024));
+    }
+
+    private static void writePrice(Product product, DataOutputStream prices, DataOutputStream scales) throws IOException {
+        BigDecimal price = product.getPrice();
+        if (price == null) {
+            prices.writeLong(0L);
+            scales.writeByte(ProductSnapshot.NULL_SCALE);
+            return;
+        }
+        if (price.scale() <= ProductSnapshot.NULL_SCALE || price.scale() > Byte.MAX_VALUE || price.unscaledValue().bitLength() > 63) {
+            throw new IOException("Price of product " + product.getId() + " does not fit the snapshot price column");
+        }
+        prices.writeLong(price.unscaledValue().longValueExact());
+        scales.writeByte(price.scale());
+    }
+
+    private static void writeString(String value, DataOutputStream offsets, DataOutputStream heap) throws IOException {
+        if (value == null) {
+            offsets.writeInt(ProductSnapshot.NULL_OFFSET);
+            return;
+        }
+        if (heap.size() == Integer.MAX_VALUE) {
+            throw new IOException("Product snapshot string heap larger than 2GB");
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        offsets.writeInt(heap.size());
+        heap.writeInt(bytes.length);
+        heap.write(bytes);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.item_comparation.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Decides whether a compare request may run at all, before its ids are parsed. Two opt-in limits, off when set to 0
+// (the default):
+// - a token bucket per client, refilled at idsPerSecond and holding at most burst ids; a request costs one token per
+//   id, so a thousand-id call weighs what a thousand single-id calls do
+// - at most maxConcurrent admitted compares running at once across every client
+// Buckets are kept as GCRA: one AtomicLong per client holding the time at which its bucket will be full again,
+// advanced with compare-and-set, so admission never takes a lock. Idle clients are evicted once their bucket would
+// have refilled, and at most maxClients are tracked.
+@Component
+public class CompareAdmission {
+
+    public static final Decision ADMITTED = new Decision(true, 0L, null);
+
+    public static final String REASON_RATE_LIMIT = "rate_limit";
+    public static final String REASON_CONCURRENCY = "concurrency";
+
+    private final long nanosPerId;
+    private final long burstNanos;
+    private final int burst;
+    private final int maxConcurrent;
+    private final LongSupplier nanoClock;
+    private final Cache<String, AtomicLong> buckets;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rateLimited;
+    private final Counter concurrencyLimited;
+
+    @Autowired
+    public CompareAdmission(@Value("${products.compare.rate-limit.ids-per-second:0}") int idsPerSecond,
+                            @Value("${products.compare.rate-limit.burst:2000}") int burst,
+                            @Value("${products.compare.rate-limit.max-clients:100000}") long maxClients,
+                            @Value("${products.compare.max-concurrent:0}") int maxConcurrent,
+                            MeterRegistry meterRegistry) {
+        this(idsPerSecond, burst, maxClients, maxConcurrent, meterRegistry, System::nanoTime);
+    }
+
+    CompareAdmission(int idsPerSecond, int burst, long maxClients, int maxConcurrent, MeterRegistry meterRegistry,
+                     LongSupplier nanoClock) {
+        if (idsPerSecond < 0 || maxConcurrent < 0 || (idsPerSecond > 0 && burst <= 0)) {
+            throw new IllegalArgumentException("Compare limits must not be negative and a rate limit needs a positive burst");
+        }
+        this.nanosPerId = idsPerSecond == 0 ? 0L : TimeUnit.SECONDS.toNanos(1) / idsPerSecond;
+        this.burst = burst;
+        this.burstNanos = nanosPerId * burst;
+        this.maxConcurrent = maxConcurrent;
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos(Math.max(burstNanos, 1L)))
+                .build();
+        this.rateLimited = shedCounter(meterRegistry, REASON_RATE_LIMIT);
+        this.concurrencyLimited = shedCounter(meterRegistry, REASON_CONCURRENCY);
+        Gauge.builder("products.compare.in.flight", inFlight, AtomicInteger::get)
+                .description("Compare requests admitted and still running")
+                .register(meterRegistry);
+    }
+
+    // An admitted request must call release() once it is done, whatever its outcome
+    public Decision tryAcquire(String clientKey, int ids) {
+        if (nanosPerId > 0) {
+            long waitNanos = takeTokens(clientKey, Math.min(Math.max(ids, 1), burst));
+            if (waitNanos > 0) {
+                rateLimited.increment();
+                return new Decision(false, retryAfterSeconds(waitNanos), REASON_RATE_LIMIT);
+            }
+        }
+        if (maxConcurrent > 0 && inFlight.incrementAndGet() > maxConcurrent) {
+            inFlight.decrementAndGet();
+            concurrencyLimited.increment();
+            // No telling when a slot frees up; running compares take milliseconds, so the next second is a fair guess
+            return new Decision(false, 1L, REASON_CONCURRENCY);
+        }
+        return ADMITTED;
+    }
+
+    public void release() {
+        if (maxConcurrent > 0) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    // Ids in a raw compare path segment, counted from the separators without parsing any of them. A percent-encoded
+    // comma separates ids once the path is decoded, so it counts as well.
+    public static int countIds(CharSequence productIdsCsv) {
+        int ids = 1;
+        int length = productIdsCsv.length();
+        for (int i = 0; i < length; i++) {
+            char c = productIdsCsv.charAt(i);
+            if (c == ',') {
+                ids++;
+            } else if (c == '%' && i + 2 < length && productIdsCsv.charAt(i + 1) == '2'
+                    && (productIdsCsv.charAt(i + 2) == 'C' || productIdsCsv.charAt(i + 2) == 'c')) {
+                ids++;
+                i += 2;
+            }
+        }
+        return ids;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    // Returns 0 when the tokens were taken, otherwise how long until the bucket holds enough of them
+    private long takeTokens(String clientKey, int cost) {
+        AtomicLong fullAt = buckets.get(clientKey, key -> new AtomicLong(Long.MIN_VALUE));
+        long costNanos = cost * nanosPerId;
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = fullAt.get();
+            // A bucket full since before now starts from now: unused time does not bank tokens beyond the burst
+            long start = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+            long next = start + costNanos;
+            long overdraft = next - now - burstNanos;
+            if (overdraft > 0) {
+                return overdraft;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0L;
+            }
+        }
+    }
+
+    private static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1L, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static Counter shedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("products.compare.shed")
+                .description("Compare requests refused with 429 before any work, by limit hit")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    public record Decision(boolean admitted, long retryAfterSeconds, String reason) {
+    }
+}
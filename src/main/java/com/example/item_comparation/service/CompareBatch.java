@@ -0,0 +1,73 @@
+package com.example.item_comparation.service;
+
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.repository.ProductRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Resolves a compare request with one multi-get over the distinct ids, then maps the results back to the
+// requested order. Duplicated ids are looked up once but still appear once per occurrence in the result.
+final class CompareBatch {
+
+    private final List<Product> products;
+    private final List<Long> missingIds;
+    private final int distinctIds;
+
+    private CompareBatch(List<Product> products, List<Long> missingIds, int distinctIds) {
+        this.products = products;
+        this.missingIds = missingIds;
+        this.distinctIds = distinctIds;
+    }
+
+    static CompareBatch lookup(ProductRepository repository, long[] requestedIds) {
+        long[] uniqueIds = distinctSorted(requestedIds);
+        Product[] found = repository.findAllById(uniqueIds);
+
+        List<Product> products = new ArrayList<>(requestedIds.length);
+        List<Long> missingIds = new ArrayList<>(0);
+        boolean[] reportedMissing = new boolean[uniqueIds.length];
+        for (long id : requestedIds) {
+            int position = Arrays.binarySearch(uniqueIds, id);
+            Product product = found[position];
+            if (product != null) {
+                products.add(product);
+            } else if (!reportedMissing[position]) {
+                reportedMissing[position] = true;
+                missingIds.add(id);
+            }
+        }
+        return new CompareBatch(products, missingIds, uniqueIds.length);
+    }
+
+    // Found products in request order
+    List<Product> products() {
+        return products;
+    }
+
+    // Distinct missing ids in request order
+    List<Long> missingIds() {
+        return missingIds;
+    }
+
+    int distinctIds() {
+        return distinctIds;
+    }
+
+    boolean isComplete() {
+        return missingIds.isEmpty();
+    }
+
+    static long[] distinctSorted(long[] ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[distinct - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return distinct == sorted.length ? sorted : Arrays.copyOf(sorted, distinct);
+    }
+}
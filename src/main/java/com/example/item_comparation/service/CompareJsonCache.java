@@ -0,0 +1,131 @@
+package com.example.item_comparation.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+// Assembled JSON of the compare list for small id sets, which listing pages request over and over. Entries are
+// keyed by the sorted distinct ids, so "1,2", "2,1" and "2,1,2" share one, and hold each product's bytes once; a
+// request gets its own order and duplicates back by copying them. An entry keeps the version of each product's
+// bytes and is only served while the store still holds those versions, so a write to one of its products, however
+// it interleaves with the load, makes the next request reassemble it, while writes to other products leave it alone.
+// A hit costs the parse, one version lookup in the store and the copy, without decoding products or touching the
+// per-product cache. Missing ids are not cached.
+@Component
+public class CompareJsonCache {
+
+    static final String CACHE_NAME = "products.compare";
+
+    private final ProductsService productsService;
+    private final ProductJsonCache productJsonCache;
+    private final int maxIds;
+    private final Cache<Key, Entry> cache;
+
+    public CompareJsonCache(ProductsService productsService,
+                            ProductJsonCache productJsonCache,
+                            MeterRegistry meterRegistry,
+                            @Value("${products.compare-cache.max-size:10000}") long maxSize,
+                            @Value("${products.compare-cache.max-ids:16}") int maxIds) {
+        this.productsService = productsService;
+        this.productJsonCache = productJsonCache;
+        this.maxIds = maxIds;
+        // Size-bounded W-TinyLFU
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    // Same bytes and versions as productJsonCache.getProductsJson(productsService.compareFromCsv(productIdsCsv)),
+    // and the same exceptions for invalid or missing ids. Larger sets than maxIds are assembled without caching.
+    public ProductJsonCache.ProductsJson getCompareJson(String productIdsCsv) {
+        long[] ids = productsService.parseProductIds(productIdsCsv);
+        long[] uniqueIds = CompareBatch.distinctSorted(ids);
+        if (maxIds <= 0 || uniqueIds.length == 0 || uniqueIds.length > maxIds) {
+            return productJsonCache.getProductsJson(productsService.compare(ids));
+        }
+        Key key = new Key(uniqueIds);
+        Entry entry = cache.get(key, ignored -> load(ids, uniqueIds));
+        if (!Arrays.equals(entry.versions(), productsService.getProductVersions(uniqueIds))) {
+            // A product was written since: drop it unless a newer entry already replaced it, and serve a fresh one
+            cache.asMap().remove(key, entry);
+            entry = cache.get(key, ignored -> load(ids, uniqueIds));
+        }
+        return entry.assemble(ids);
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    // Each version comes with the bytes it was read with, so bytes ProductJsonCache has not dropped yet carry their
+    // old version and fail the next check. compare() throws for the first missing id in request order, as the
+    // uncached path does.
+    private Entry load(long[] ids, long[] uniqueIds) {
+        productsService.compare(ids);
+        byte[][] json = new byte[uniqueIds.length][];
+        long[] versions = new long[uniqueIds.length];
+        for (int i = 0; i < uniqueIds.length; i++) {
+            ProductJsonCache.ProductJson productJson = productJsonCache.getProductJson(uniqueIds[i]);
+            json[i] = productJson.bytes();
+            versions[i] = productJson.version();
+        }
+        return new Entry(uniqueIds, json, versions);
+    }
+
+    record Entry(long[] uniqueIds, byte[][] json, long[] versions) {
+
+        // One exact-size array: the brackets, a comma between products and each product's bytes in request order
+        ProductJsonCache.ProductsJson assemble(long[] ids) {
+            int[] positions = new int[ids.length];
+            int length = 1 + ids.length;
+            for (int i = 0; i < ids.length; i++) {
+                positions[i] = Arrays.binarySearch(uniqueIds, ids[i]);
+                length += json[positions[i]].length;
+            }
+            byte[] out = new byte[length];
+            long[] requestVersions = new long[ids.length];
+            int offset = 0;
+            out[offset++] = '[';
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) {
+                    out[offset++] = ',';
+                }
+                byte[] bytes = json[positions[i]];
+                System.arraycopy(bytes, 0, out, offset, bytes.length);
+                offset += bytes.length;
+                requestVersions[i] = versions[positions[i]];
+            }
+            out[offset] = ']';
+            return new ProductJsonCache.ProductsJson(out, requestVersions);
+        }
+    }
+
+    static final class Key {
+
+        private final long[] ids;
+        private final int hash;
+
+        Key(long[] ids) {
+            this.ids = ids;
+            this.hash = Arrays.hashCode(ids);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other || (other instanceof Key key && hash == key.hash && Arrays.equals(ids, key.ids));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.item_comparation.service;
+
+import com.example.item_comparation.domain.CompareTable;
+import com.example.item_comparation.domain.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Transposes a comparison into one column per attribute, so field names are written once instead of once per product
+final class CompareTableBuilder {
+
+    private CompareTableBuilder() {
+    }
+
+    static CompareTable build(List<Product> products) {
+        int size = products.size();
+        List<Long> ids = new ArrayList<>(size);
+        List<String> names = new ArrayList<>(size);
+        List<String> imageUrls = new ArrayList<>(size);
+        List<String> descriptions = new ArrayList<>(size);
+        List<BigDecimal> prices = new ArrayList<>(size);
+        List<String> classifications = new ArrayList<>(size);
+        Map<String, List<String>> specifications = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            Product product = products.get(i);
+            ids.add(product.getId());
+            names.add(product.getName());
+            imageUrls.add(product.getImageUrl());
+            descriptions.add(product.getDescription());
+            prices.add(product.getPrice());
+            classifications.add(product.getClassification());
+            for (Map.Entry<String, String> attribute : product.getSpecificationAttributes().entrySet()) {
+                // A key first seen at product i gets nulls for the products before it
+                specifications.computeIfAbsent(attribute.getKey(), key -> nulls(size)).set(i, attribute.getValue());
+            }
+        }
+        return new CompareTable(ids, names, imageUrls, descriptions, prices, classifications, specifications);
+    }
+
+    private static List<String> nulls(int size) {
+        List<String> column = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            column.add(null);
+        }
+        return column;
+    }
+}
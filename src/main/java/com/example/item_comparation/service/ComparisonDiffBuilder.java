@@ -0,0 +1,87 @@
+package com.example.item_comparation.service;
+
+import com.example.item_comparation.domain.ComparisonDiff;
+import com.example.item_comparation.domain.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+// Builds the attribute matrix of a comparison and keeps only the rows whose values are not all equal.
+// Every kept row holds one value per compared product, in the order of productIds.
+final class ComparisonDiffBuilder {
+
+    private ComparisonDiffBuilder() {
+    }
+
+    // Min and max are found on the price units and reported with the BigDecimal of the product holding them
+    static ComparisonDiff build(List<Product> products, ToLongFunction<Product> priceUnits) {
+        List<Long> productIds = new ArrayList<>(products.size());
+        Product cheapest = null;
+        Product dearest = null;
+        long minUnits = Product.NO_PRICE;
+        long maxUnits = Long.MIN_VALUE;
+        for (Product product : products) {
+            productIds.add(product.getId());
+            long units = priceUnits.applyAsLong(product);
+            if (units != Product.NO_PRICE) {
+                if (cheapest == null || units < minUnits) {
+                    cheapest = product;
+                    minUnits = units;
+                }
+                if (dearest == null || units > maxUnits) {
+                    dearest = product;
+                    maxUnits = units;
+                }
+            }
+        }
+        BigDecimal minPrice = cheapest == null ? null : cheapest.getPrice();
+        BigDecimal maxPrice = dearest == null ? null : dearest.getPrice();
+
+        Map<String, List<Object>> attributes = new LinkedHashMap<>();
+        addIfDifferent(attributes, "name", products, Product::getName);
+        addIfDifferent(attributes, "price", products, Product::getPrice);
+        addIfDifferent(attributes, "classification", products, Product::getClassification);
+
+        Set<String> specificationKeys = new LinkedHashSet<>();
+        for (Product product : products) {
+            specificationKeys.addAll(product.getSpecificationAttributes().keySet());
+        }
+        Map<String, List<String>> specifications = new LinkedHashMap<>();
+        for (String key : specificationKeys) {
+            addIfDifferent(specifications, key, products, product -> product.getSpecificationAttributes().get(key));
+        }
+        return new ComparisonDiff(productIds, minPrice, maxPrice, attributes, specifications);
+    }
+
+    private static <T> void addIfDifferent(Map<String, List<T>> target, String name, List<Product> products,
+                                           Function<Product, ? extends T> attribute) {
+        List<T> values = new ArrayList<>(products.size());
+        boolean different = false;
+        for (Product product : products) {
+            T value = attribute.apply(product);
+            if (!values.isEmpty() && !sameValue(values.get(0), value)) {
+                different = true;
+            }
+            values.add(value);
+        }
+        if (different) {
+            target.put(name, values);
+        }
+    }
+
+    // 10.0 and 10.00 are the same price
+    private static boolean sameValue(Object first, Object other) {
+        if (first instanceof BigDecimal firstPrice && other instanceof BigDecimal otherPrice) {
+            return firstPrice.compareTo(otherPrice) == 0;
+        }
+        return Objects.equals(first, other);
+    }
+}
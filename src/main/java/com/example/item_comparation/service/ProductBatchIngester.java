@@ -0,0 +1,197 @@
+package com.example.item_comparation.service;
+
+import com.example.item_comparation.domain.BatchIngestReport;
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.exception.BadRequestException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Incremental catalog updates as NDJSON, one operation per line:
+//   {"op":"upsert","product":{"id":7,"name":"...","price":10.5,...}}   stores the product whole, replacing id 7
+//   {"op":"delete","id":7}
+// Lines are parsed as they arrive and applied in batches of at most batchSize operations, in payload order, through
+// ProductsService, which keeps the indexes and caches in step. A bad line or a failed batch is counted and reported;
+// it never stops the rest of the payload.
+@Component
+public class ProductBatchIngester {
+
+    static final int MAX_ERROR_SAMPLES = 100;
+
+    private final ProductsService productsService;
+    private final ObjectReader operationReader;
+    private final int batchSize;
+
+    public ProductBatchIngester(ProductsService productsService, ObjectMapper objectMapper,
+                                @Value("${products.ingest.batch-size:1000}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than zero");
+        }
+        this.productsService = productsService;
+        this.operationReader = objectMapper.readerFor(Operation.class);
+        this.batchSize = batchSize;
+    }
+
+    public BatchIngestReport ingest(InputStream ndjson) {
+        Ingestion ingestion = begin();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ingestion.accept(line);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Unable to read batch payload: " + exception.getMessage(), exception);
+        }
+        return ingestion.finish();
+    }
+
+    // For callers that receive the payload already split into lines, such as the reactive controller
+    public Ingestion begin() {
+        return new Ingestion();
+    }
+
+    record Operation(String op, Long id, Product product) {
+    }
+
+    public final class Ingestion {
+
+        private final long start = System.nanoTime();
+        private final List<Operation> pending = new ArrayList<>(batchSize);
+        private final List<Long> pendingLines = new ArrayList<>(batchSize);
+        private final List<BatchIngestReport.Batch> batches = new ArrayList<>();
+        private final List<BatchIngestReport.LineError> errorSamples = new ArrayList<>();
+        private long lines;
+        private long upserted;
+        private long deleted;
+        private long notFound;
+        private long errors;
+        // Lines rejected while parsing, charged to the batch they would have joined
+        private int pendingErrors;
+
+        private Ingestion() {
+        }
+
+        public void accept(String line) {
+            lines++;
+            if (line.isBlank()) {
+                return;
+            }
+            Operation operation;
+            try {
+                operation = operationReader.readValue(line);
+            } catch (JsonProcessingException exception) {
+                reject(lines, "Malformed JSON: " + exception.getOriginalMessage());
+                return;
+            }
+            String problem = validate(operation);
+            if (problem != null) {
+                reject(lines, problem);
+                return;
+            }
+            pending.add(operation);
+            pendingLines.add(lines);
+            if (pending.size() == batchSize) {
+                apply();
+            }
+        }
+
+        public BatchIngestReport finish() {
+            if (!pending.isEmpty() || pendingErrors > 0) {
+                apply();
+            }
+            long elapsedNanos = Math.max(1L, System.nanoTime() - start);
+            return new BatchIngestReport(lines, upserted, deleted, notFound, errors, elapsedNanos / 1_000_000,
+                    perSecond(upserted + deleted + notFound + errors, elapsedNanos), batches, errorSamples);
+        }
+
+        private String validate(Operation operation) {
+            if ("upsert".equals(operation.op())) {
+                if (operation.product() == null || operation.product().getId() == null) {
+                    return "upsert needs a product with an id";
+                }
+                // Caught per line, so one out-of-scale price does not fail the whole batch it would land in
+                try {
+                    productsService.priceScale().toUnits(operation.product().getPrice());
+                } catch (BadRequestException exception) {
+                    return exception.getMessage();
+                }
+                return null;
+            }
+            if ("delete".equals(operation.op())) {
+                return operation.id() == null ? "delete needs an id" : null;
+            }
+            return "Unknown op '" + operation.op() + "', expected upsert or delete";
+        }
+
+        // Consecutive operations of the same kind go to the service together, so the batch keeps payload order
+        private void apply() {
+            long batchStart = System.nanoTime();
+            int batchUpserted = 0;
+            int batchDeleted = 0;
+            int batchNotFound = 0;
+            int batchErrors = pendingErrors;
+            int from = 0;
+            while (from < pending.size()) {
+                String op = pending.get(from).op();
+                int to = from;
+                while (to < pending.size() && pending.get(to).op().equals(op)) {
+                    to++;
+                }
+                List<Operation> run = pending.subList(from, to);
+                try {
+                    if (op.equals("upsert")) {
+                        productsService.saveAll(run.stream().map(Operation::product).toList());
+                        batchUpserted += run.size();
+                    } else {
+                        int removed = productsService.deleteAll(run.stream().map(Operation::id).distinct().toList());
+                        batchDeleted += removed;
+                        batchNotFound += run.size() - removed;
+                    }
+                } catch (RuntimeException exception) {
+                    batchErrors += run.size();
+                    errors += run.size();
+                    sample(pendingLines.get(from), "Lines " + pendingLines.get(from) + "-" + pendingLines.get(to - 1)
+                            + " not applied: " + exception.getMessage());
+                }
+                from = to;
+            }
+            upserted += batchUpserted;
+            deleted += batchDeleted;
+            notFound += batchNotFound;
+            long elapsedNanos = Math.max(1L, System.nanoTime() - batchStart);
+            int operations = pending.size() + pendingErrors;
+            batches.add(new BatchIngestReport.Batch(batches.size() + 1, operations, batchUpserted, batchDeleted,
+                    batchNotFound, batchErrors, elapsedNanos / 1e6, perSecond(operations, elapsedNanos)));
+            pending.clear();
+            pendingLines.clear();
+            pendingErrors = 0;
+        }
+
+        private void reject(long line, String message) {
+            errors++;
+            pendingErrors++;
+            sample(line, message);
+        }
+
+        private void sample(long line, String message) {
+            if (errorSamples.size() < MAX_ERROR_SAMPLES) {
+                errorSamples.add(new BatchIngestReport.LineError(line, message));
+            }
+        }
+    }
+
+    private static double perSecond(long operations, long elapsedNanos) {
+        return Math.round(operations * 1e9 / elapsedNanos * 10) / 10.0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.item_comparation.service;
+
+import com.example.item_comparation.domain.Product;
+
+import java.util.Collection;
+
+// Notified after products are written to the store, so derived data (caches, indexes) can be refreshed
+public interface ProductChangeListener {
+
+    void onProductsSaved(Collection<Product> products);
+
+    // Ids that were stored and are now gone
+    default void onProductsDeleted(Collection<Long> ids) {
+    }
+
+    // The whole catalog was replaced in one swap; anything derived from individual products may be stale
+    default void onCatalogReplaced() {
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.item_comparation.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ProductIdAllocator {
+
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    public long next() {
+        return nextId.getAndIncrement();
+    }
+
+    // Reserves a contiguous block of ids with a single atomic add and returns the first one
+    public long reserve(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        return nextId.getAndAdd(count);
+    }
+
+    // Moves the sequence past ids assigned by the caller so generated ids never collide with them
+    public void observe(long id) {
+        if (id >= nextId.get()) {
+            nextId.accumulateAndGet(id + 1, Math::max);
+        }
+    }
+}
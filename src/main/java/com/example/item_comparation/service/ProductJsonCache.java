@@ -0,0 +1,130 @@
+package com.example.item_comparation.service;
+
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.exception.InternalServerErrorException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.List;
+
+// UTF-8 JSON of the most requested products, so hot reads skip the object mapper. Entries are loaded from the
+// store inside the cache's atomic compute and dropped on save: an invalidation waits for an in-flight load of the
+// same id, so a stale serialization can never be cached after the product changed. Each entry carries the
+// version read before the product, so a version never claims newer content than the bytes it comes with.
+@Component
+public class ProductJsonCache implements ProductChangeListener {
+
+    static final String CACHE_NAME = "products.json";
+
+    private final ProductsService productsService;
+    private final ObjectWriter productWriter;
+    private final Cache<Long, ProductJson> cache;
+
+    public ProductJsonCache(ProductsService productsService,
+                            ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${products.json-cache.max-size:10000}") long maxSize) {
+        this.productsService = productsService;
+        this.productWriter = objectMapper.writerFor(Product.class);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        productsService.addProductChangeListener(this);
+    }
+
+    public ProductJson getProductJson(long productId) {
+        return cache.get(productId, this::serialize);
+    }
+
+    // Assembles a JSON array by concatenating the cached bytes of each product
+    public ProductsJson getProductsJson(List<Product> products) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(products.size() * 256 + 2);
+        long[] versions = new long[products.size()];
+        out.write('[');
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            ProductJson json = getProductJson(products.get(i).getId());
+            out.writeBytes(json.bytes());
+            versions[i] = json.version();
+        }
+        out.write(']');
+        return new ProductsJson(out.toByteArray(), versions);
+    }
+
+    @Override
+    public void onProductsSaved(Collection<Product> products) {
+        for (Product product : products) {
+            cache.invalidate(product.getId());
+        }
+    }
+
+    @Override
+    public void onProductsDeleted(Collection<Long> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    @Override
+    public void onCatalogReplaced() {
+        cache.invalidateAll();
+    }
+
+    private ProductJson serialize(Long productId) {
+        long version = productsService.getProductVersion(productId);
+        Product product = productsService.getProductById(productId);
+        try {
+            return new ProductJson(productWriter.writeValueAsBytes(product), version);
+        } catch (JsonProcessingException exception) {
+            throw new InternalServerErrorException("Error serializing product with ID: " + productId + ": " + exception.getMessage());
+        }
+    }
+
+    public static final class ProductJson {
+        private final byte[] bytes;
+        private final long version;
+
+        ProductJson(byte[] bytes, long version) {
+            this.bytes = bytes;
+            this.version = version;
+        }
+
+        public byte[] bytes() {
+            return bytes;
+        }
+
+        public long version() {
+            return version;
+        }
+    }
+
+    public static final class ProductsJson {
+        private final byte[] bytes;
+        private final long[] versions;
+
+        ProductsJson(byte[] bytes, long[] versions) {
+            this.bytes = bytes;
+            this.versions = versions;
+        }
+
+        public byte[] bytes() {
+            return bytes;
+        }
+
+        // Version of each product, in the order of the array
+        public long[] versions() {
+            return versions;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.item_comparation.service;
+
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.util.SearchTokenizer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+// In-process inverted index over name, description and specifications. Each term maps to the products holding
+// it with a field-weighted frequency, so a hit in the name counts more than one in the description. Queries are
+// ranked with a saturated tf * idf score scaled by the share of query terms a product matches, the last query
+// term also matches as a prefix so a partially typed word still finds results, and only the top k are kept.
+// Writers must be serialized by the caller; readers never block.
+final class ProductSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int SPECIFICATIONS_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final double SATURATION = 1.2;
+    private static final double PREFIX_FACTOR = 0.5;
+    private static final int MAX_QUERY_TERMS = 16;
+    private static final int MAX_PREFIX_TERMS = 64;
+
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Long, Set<String>> documentTerms = new ConcurrentHashMap<>();
+
+    // Terms of one product with their weighted frequency, computed at ingest before any lock is taken
+    record Document(long id, Map<String, Integer> weights) {
+    }
+
+    static Document tokenize(Product product) {
+        Map<String, Integer> weights = new HashMap<>();
+        addTerms(weights, product.getName(), NAME_WEIGHT);
+        addTerms(weights, product.getSpecifications(), SPECIFICATIONS_WEIGHT);
+        addTerms(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+        return new Document(product.getId(), weights);
+    }
+
+    void update(Collection<Document> documents) {
+        for (Document document : documents) {
+            Long id = document.id();
+            Set<String> previous = documentTerms.put(id, document.weights().keySet());
+            if (previous != null) {
+                for (String term : previous) {
+                    if (!document.weights().containsKey(term)) {
+                        removePosting(term, id);
+                    }
+                }
+            }
+            document.weights().forEach((term, weight) ->
+                    postings.computeIfAbsent(term, key -> new ConcurrentHashMap<>()).put(id, weight));
+        }
+    }
+
+    void remove(Collection<Long> ids) {
+        for (Long id : ids) {
+            Set<String> previous = documentTerms.remove(id);
+            if (previous != null) {
+                for (String term : previous) {
+                    removePosting(term, id);
+                }
+            }
+        }
+    }
+
+    void rebuild(Stream<Product> products) {
+        postings.clear();
+        documentTerms.clear();
+        products.forEach(product -> update(List.of(tokenize(product))));
+    }
+
+    // Ids of the best matches, best first; ties go to the lower id
+    List<Long> query(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(SearchTokenizer.tokenize(query)));
+        if (terms.size() > MAX_QUERY_TERMS) {
+            terms = terms.subList(0, MAX_QUERY_TERMS);
+        }
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        int documents = Math.max(1, documentTerms.size());
+        Map<Long, Score> scores = new HashMap<>();
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            long termBit = 1L << i;
+            accumulate(scores, postings.get(term), documents, 1.0, termBit);
+            if (i == terms.size() - 1) {
+                int expanded = 0;
+                for (Map.Entry<String, Map<Long, Integer>> prefixed
+                        : postings.subMap(term, false, term + Character.MAX_VALUE, false).entrySet()) {
+                    if (++expanded > MAX_PREFIX_TERMS) {
+                        break;
+                    }
+                    accumulate(scores, prefixed.getValue(), documents, PREFIX_FACTOR, termBit);
+                }
+            }
+        }
+        return topK(scores, terms.size(), limit);
+    }
+
+    private static void addTerms(Map<String, Integer> weights, String text, int weight) {
+        for (String term : SearchTokenizer.tokenize(text)) {
+            weights.merge(term, weight, Integer::sum);
+        }
+    }
+
+    private void removePosting(String term, Long id) {
+        Map<Long, Integer> products = postings.get(term);
+        if (products != null) {
+            products.remove(id);
+            if (products.isEmpty()) {
+                postings.remove(term, products);
+            }
+        }
+    }
+
+    private static void accumulate(Map<Long, Score> scores, Map<Long, Integer> products, int documents,
+                                   double factor, long termBit) {
+        if (products == null || products.isEmpty()) {
+            return;
+        }
+        double idf = Math.log(1.0 + (double) documents / products.size());
+        products.forEach((id, weight) -> {
+            Score score = scores.computeIfAbsent(id, key -> new Score());
+            score.value += factor * idf * weight / (weight + SATURATION);
+            score.matchedTerms |= termBit;
+        });
+    }
+
+    private static List<Long> topK(Map<Long, Score> scores, int termCount, int limit) {
+        Comparator<Map.Entry<Long, Double>> worstFirst = Map.Entry.<Long, Double>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(worstFirst);
+        scores.forEach((id, score) -> {
+            double ranked = score.value * Long.bitCount(score.matchedTerms) / termCount;
+            best.add(Map.entry(id, ranked));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+        List<Long> ids = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ids.add(best.poll().getKey());
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    private static final class Score {
+        double value;
+        long matchedTerms;
+    }
+}
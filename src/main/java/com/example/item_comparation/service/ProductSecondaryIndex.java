@@ -0,0 +1,172 @@
+package com.example.item_comparation.service;
+
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.util.PriceScale;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+// Classification and price indexes over the stored products, updated on every save. Each classification keeps
+// its ids in id order and (price, id) entries in price order, and one global price index covers every product,
+// so a query walks only the matching range. Prices are kept as PriceScale units, so ordering compares longs, and
+// products without a price carry Product.NO_PRICE, which sorts after every priced one.
+// Writers must be serialized by the caller; readers never block and may miss a product being written.
+final class ProductSecondaryIndex {
+
+    private static final Comparator<Entry> ENTRY_ORDER = (first, second) -> {
+        int byPrice = Long.compare(first.price(), second.price());
+        return byPrice != 0 ? byPrice : Long.compare(first.id(), second.id());
+    };
+    // Sorts before every unpriced entry, so it bounds the priced part of a price index
+    private static final Entry FIRST_UNPRICED = new Entry(Long.MIN_VALUE, null, Product.NO_PRICE);
+
+    private final PriceScale priceScale;
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> byPrice = new ConcurrentSkipListSet<>(ENTRY_ORDER);
+    private final ConcurrentHashMap<String, Classification> byClassification = new ConcurrentHashMap<>();
+
+    ProductSecondaryIndex(PriceScale priceScale) {
+        this.priceScale = priceScale;
+    }
+
+    void update(Collection<Product> products) {
+        for (Product product : products) {
+            Entry entry = new Entry(product.getId(), key(product.getClassification()), priceScale.unitsOf(product));
+            Entry previous = entries.put(entry.id(), entry);
+            if (previous != null) {
+                remove(previous);
+            }
+            add(entry);
+        }
+    }
+
+    void remove(Collection<Long> ids) {
+        for (Long id : ids) {
+            Entry previous = entries.remove(id);
+            if (previous != null) {
+                remove(previous);
+            }
+        }
+    }
+
+    void rebuild(Stream<Product> products) {
+        entries.clear();
+        byPrice.clear();
+        byClassification.clear();
+        List<Product> batch = new ArrayList<>();
+        Iterator<Product> iterator = products.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            if (batch.size() == 1024 || !iterator.hasNext()) {
+                update(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Ids matching every given filter, at most limit of them. In price order when priceOrder is set, starting
+    // after the (afterPrice, afterId) entry, otherwise in id order starting after afterId; Long.MIN_VALUE as
+    // afterId starts from the beginning. Price bounds are inclusive units and exclude unpriced products; pass
+    // Long.MIN_VALUE and Product.NO_PRICE for no bound.
+    List<Long> query(String classification, long minPrice, long maxPrice,
+                     boolean priceOrder, long afterPrice, long afterId, int limit) {
+        NavigableSet<Entry> priceIndex = byPrice;
+        if (classification != null) {
+            Classification indexed = byClassification.get(key(classification));
+            if (indexed == null) {
+                return List.of();
+            }
+            if (!priceOrder && minPrice == Long.MIN_VALUE && maxPrice == Product.NO_PRICE) {
+                return take(indexed.ids.tailSet(afterId, false), limit);
+            }
+            priceIndex = indexed.byPrice;
+        }
+        // The price cursor is a position in the price index itself, so resuming is a tailSet, not a rescan
+        Entry after = priceOrder && afterId != Long.MIN_VALUE ? new Entry(afterId, null, afterPrice) : null;
+        NavigableSet<Entry> range = priceRange(priceIndex, minPrice, maxPrice, after);
+        if (priceOrder) {
+            List<Long> ids = new ArrayList<>(Math.min(limit, 64));
+            for (Iterator<Entry> iterator = range.iterator(); iterator.hasNext() && ids.size() < limit; ) {
+                ids.add(iterator.next().id());
+            }
+            return ids;
+        }
+        // A price range is not in id order: collect it, then sort what is left after the cursor
+        List<Long> ids = new ArrayList<>();
+        for (Entry entry : range) {
+            if (entry.id() > afterId) {
+                ids.add(entry.id());
+            }
+        }
+        ids.sort(null);
+        return ids.size() > limit ? new ArrayList<>(ids.subList(0, limit)) : ids;
+    }
+
+    // Same normalization the index applies, so callers can re-check a product against a query
+    static boolean sameClassification(String indexed, String requested) {
+        return key(indexed).equals(key(requested));
+    }
+
+    private void add(Entry entry) {
+        byPrice.add(entry);
+        Classification classification = byClassification.computeIfAbsent(entry.classification(), key -> new Classification());
+        classification.byPrice.add(entry);
+        classification.ids.add(entry.id());
+    }
+
+    private void remove(Entry entry) {
+        byPrice.remove(entry);
+        Classification classification = byClassification.get(entry.classification());
+        if (classification != null) {
+            classification.byPrice.remove(entry);
+            classification.ids.remove(entry.id());
+        }
+    }
+
+    private static NavigableSet<Entry> priceRange(NavigableSet<Entry> index, long minPrice, long maxPrice, Entry after) {
+        Entry from = new Entry(Long.MIN_VALUE, null, minPrice);
+        boolean fromInclusive = true;
+        if (after != null && ENTRY_ORDER.compare(after, from) >= 0) {
+            from = after;
+            fromInclusive = false;
+        }
+        if (minPrice == Long.MIN_VALUE && maxPrice == Product.NO_PRICE) {
+            return after == null ? index : index.tailSet(from, fromInclusive);
+        }
+        boolean bounded = maxPrice != Product.NO_PRICE;
+        Entry to = bounded ? new Entry(Long.MAX_VALUE, null, maxPrice) : FIRST_UNPRICED;
+        if (ENTRY_ORDER.compare(from, to) >= 0) {
+            return Collections.emptyNavigableSet(); // The cursor is already past the band
+        }
+        return index.subSet(from, fromInclusive, to, bounded);
+    }
+
+    private static List<Long> take(NavigableSet<Long> ids, int limit) {
+        List<Long> taken = new ArrayList<>(Math.min(limit, 64));
+        for (Iterator<Long> iterator = ids.iterator(); iterator.hasNext() && taken.size() < limit; ) {
+            taken.add(iterator.next());
+        }
+        return taken;
+    }
+
+    private static String key(String classification) {
+        return classification == null ? "" : classification.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(long id, String classification, long price) {
+    }
+
+    private static final class Classification {
+        final NavigableSet<Long> ids = new ConcurrentSkipListSet<>();
+        final NavigableSet<Entry> byPrice = new ConcurrentSkipListSet<>(ENTRY_ORDER);
+    }
+}
@@ -1,37 +1,124 @@
 package com.example.item_comparation.service;
 
+import com.example.item_comparation.domain.CompareResult;
+import com.example.item_comparation.domain.CompareTable;
+import com.example.item_comparation.domain.ComparisonDiff;
 import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.exception.BadRequestException;
 import com.example.item_comparation.exception.InternalServerErrorException;
+import com.example.item_comparation.exception.InvalidProductIdsException;
 import com.example.item_comparation.exception.ProductNotFoundException;
+import com.example.item_comparation.repository.CatalogChanges;
+import com.example.item_comparation.repository.CatalogReplacement;
+import com.example.item_comparation.repository.InMemoryProductRepository;
+import com.example.item_comparation.repository.ProductRepository;
 import com.example.item_comparation.util.CsvIdParser;
+import com.example.item_comparation.util.PriceScale;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Service
 public class ProductsService {
-    private final Map<Long, Product> repository = new ConcurrentHashMap<>();
+    static final int MAX_SEARCH_RESULTS = 100;
+    static final int COMPARE_STREAM_WINDOW = 64;
+
+    private final ProductRepository repository;
     private final CsvIdParser csvIdParser;
-    private long nextId = 1;
+    private final PriceScale priceScale;
+    private final ProductIdAllocator idAllocator = new ProductIdAllocator();
+    // Replaced whole, never cleared in place, when the store is synced or its catalog is replaced
+    private volatile ProductSecondaryIndex secondaryIndex;
+    private volatile ProductSearchIndex searchIndex = new ProductSearchIndex();
+    // Keeps the secondary indexes applying writes in the same order as the store
+    private final Object writeLock = new Object();
+    // One index rebuild at a time; it holds writeLock only to start and to swap, never while it indexes the catalog
+    private final Object rebuildLock = new Object();
+    // Ids written while a rebuild indexes the catalog off the lock; guarded by writeLock, null when none is running
+    private Set<Long> writtenDuringRebuild;
+    // Ids written while a catalog replacement is staged, re-applied over it at commit; guarded by writeLock, null
+    // when none is open. Replacements run one at a time, so a new one takes over from one that was never committed.
+    private Set<Long> writtenDuringReplacement;
+    private final List<ProductChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final Timer compareLookupTimer;
+    private final DistributionSummary compareBatchSize;
+    private final Counter compareHits;
+    private final Counter compareMisses;
 
     public ProductsService(CsvIdParser csvIdParser) {
+        this(csvIdParser, new InMemoryProductRepository());
+    }
+
+    public ProductsService(CsvIdParser csvIdParser, ProductRepository repository) {
+        this(csvIdParser, repository, new SimpleMeterRegistry());
+    }
+
+    public ProductsService(CsvIdParser csvIdParser, ProductRepository repository, MeterRegistry meterRegistry) {
+        this(csvIdParser, repository, meterRegistry, new PriceScale());
+    }
+
+    @Autowired
+    public ProductsService(CsvIdParser csvIdParser, ProductRepository repository, MeterRegistry meterRegistry,
+                           PriceScale priceScale) {
         this.csvIdParser = csvIdParser;
+        this.repository = repository;
+        this.priceScale = priceScale;
+        this.secondaryIndex = new ProductSecondaryIndex(priceScale);
+        this.compareLookupTimer = Timer.builder("products.compare.lookup")
+                .description("Store multi-get behind a compare request")
+                .register(meterRegistry);
+        this.compareBatchSize = DistributionSummary.builder("products.compare.batch.size")
+                .description("Ids requested per compare")
+                .baseUnit("ids")
+                .maximumExpectedValue((double) csvIdParser.maxIds())
+                .register(meterRegistry);
+        this.compareHits = Counter.builder("products.compare.ids")
+                .description("Distinct compared ids, by whether the store had them")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.compareMisses = Counter.builder("products.compare.ids")
+                .description("Distinct compared ids, by whether the store had them")
+                .tag("result", "miss")
+                .register(meterRegistry);
     }
 
     public Product save(Product product) {
         if (product == null) {
-            throw new IllegalArgumentException("Product must not be null"); // Throws exception for null product
+            throw new BadRequestException("Product must not be null"); // Throws exception for null product
         }
+        normalizePrice(product);
         try {
             if (product.getId() == null) {
-                product.setId(nextId++);
+                product.setId(idAllocator.next());
+            } else {
+                idAllocator.observe(product.getId());
+            }
+            product.getSpecificationAttributes(); // Parses specifications at ingest instead of on every comparison
+            ProductSearchIndex.Document document = ProductSearchIndex.tokenize(product);
+            synchronized (writeLock) {
+                repository.save(product);
+                secondaryIndex.update(List.of(product));
+                searchIndex.update(List.of(document));
+                trackRebuildWrite(product.getId());
             }
-            repository.put(product.getId(), product);
+            notifySaved(List.of(product));
             return product;
         } catch (Exception exception) {
             throw new InternalServerErrorException("Internal error saving product."); // Throws generic exception for other errors
@@ -40,31 +127,249 @@ public class ProductsService {
 
     public void saveAll(List<Product> products) {
         if (products == null) {
-            throw new IllegalArgumentException("Products list must not be null"); // Throws exception for null list
+            throw new BadRequestException("Products list must not be null"); // Throws exception for null list
+        }
+        int withoutId = 0;
+        for (Product product : products) {
+            if (product == null) {
+                throw new BadRequestException("Products list must not contain null products"); // Throws exception for null product
+            }
+            normalizePrice(product);
+            if (product.getId() == null) {
+                withoutId++;
+            }
         }
         try {
-            products.forEach(this::save);
+            assignIds(products, withoutId);
+            List<ProductSearchIndex.Document> documents = new ArrayList<>(products.size());
+            for (Product product : products) {
+                documents.add(ProductSearchIndex.tokenize(product)); // Tokenizes for search outside the write lock
+            }
+            synchronized (writeLock) {
+                repository.saveAll(products);
+                secondaryIndex.update(products);
+                searchIndex.update(documents);
+                for (Product product : products) {
+                    trackRebuildWrite(product.getId());
+                }
+            }
+            notifySaved(products);
         } catch (Exception exception) {
             throw new InternalServerErrorException("Internal error saving products"); // Throws generic exception for other errors
         }
     }
 
+    // Removes the given products from the store and every index; ids that are not stored are ignored. Returns the
+    // number of products removed.
+    public int deleteAll(Collection<Long> productIds) {
+        if (productIds == null) {
+            throw new BadRequestException("Product ids must not be null"); // Throws exception for null list
+        }
+        long[] ids = new long[productIds.size()];
+        int i = 0;
+        for (Long productId : productIds) {
+            if (productId == null) {
+                throw new BadRequestException("Product ids must not contain null"); // Throws exception for null id
+            }
+            ids[i++] = productId;
+        }
+        int deleted;
+        try {
+            synchronized (writeLock) {
+                deleted = repository.deleteAll(ids);
+                if (deleted > 0) {
+                    secondaryIndex.remove(productIds);
+                    searchIndex.remove(productIds);
+                    for (Long productId : productIds) {
+                        trackRebuildWrite(productId);
+                    }
+                }
+            }
+        } catch (Exception exception) {
+            throw new InternalServerErrorException("Internal error deleting products"); // Throws generic exception for other errors
+        }
+        if (deleted > 0) {
+            for (ProductChangeListener listener : changeListeners) {
+                listener.onProductsDeleted(productIds);
+            }
+        }
+        return deleted;
+    }
+
+    public void addProductChangeListener(ProductChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    // For stores that were filled without going through save: moves the id sequence past every stored id and
+    // rebuilds the secondary indexes from the stored products
+    public void syncWithStore() {
+        rebuildIndexes();
+    }
+
+    // Stages a whole new catalog while the current one keeps serving. Commit swaps it into the store as one catalog
+    // version, then swaps in indexes rebuilt from it without holding up writers; queries in between use the previous
+    // indexes, whose hits are re-checked against the store. Saves and deletes that land while the replacement is
+    // staged are newer than the files, so commit re-applies them over the staged catalog instead of losing them.
+    public CatalogReplacement beginCatalogReplacement() {
+        CatalogReplacement staged = repository.beginReplacement();
+        Set<Long> written = new HashSet<>();
+        synchronized (writeLock) {
+            writtenDuringReplacement = written;
+        }
+        return new CatalogReplacement() {
+            @Override
+            public void addAll(Collection<Product> products) {
+                int withoutId = 0;
+                for (Product product : products) {
+                    if (product == null) {
+                        throw new IllegalArgumentException("Products list must not contain null products"); // Throws exception for null product
+                    }
+                    normalizePrice(product);
+                    if (product.getId() == null) {
+                        withoutId++;
+                    }
+                }
+                assignIds(products, withoutId);
+                staged.addAll(products);
+            }
+
+            @Override
+            public void removeAll(long[] ids) {
+                staged.removeAll(ids);
+            }
+
+            @Override
+            public CatalogChanges commit() {
+                CatalogChanges changes;
+                synchronized (writeLock) {
+                    if (writtenDuringReplacement == written) {
+                        writtenDuringReplacement = null;
+                    }
+                    reapplyWrites(staged, written);
+                    changes = staged.commit();
+                }
+                rebuildIndexes();
+                for (ProductChangeListener listener : changeListeners) {
+                    listener.onCatalogReplaced();
+                }
+                return changes;
+            }
+        };
+    }
+
     public List<Product> getAllProducts() {
         try {
-            return new ArrayList<>(repository.values());
+            return streamProducts(null).collect(Collectors.toList());
         } catch (Exception exception){
             throw new InternalServerErrorException("Error retrieving products " + exception.getMessage()); // Throws generic exception for other errors
         }
     }
 
+    public List<Product> getProductsPage(Long afterId, int limit) {
+        if (limit <= 0) {
+            throw new BadRequestException("limit must be greater than zero"); // Throws exception for invalid page size
+        }
+        try {
+            return streamProducts(afterId)
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        } catch (Exception exception) {
+            throw new InternalServerErrorException("Error retrieving products page " + exception.getMessage()); // Throws generic exception for other errors
+        }
+    }
+
+    // Filtered browsing through the secondary indexes, so the cost follows the number of matches rather than the
+    // catalog size. Products come in id order, or in price order (unpriced last) when sort is "price", resuming
+    // after the cursor that cursorAfter handed out for the same ordering.
+    public List<Product> findProducts(String classification, BigDecimal minPrice, BigDecimal maxPrice,
+                                      String sort, String after, Integer limit) {
+        boolean priceOrder = isPriceSort(sort);
+        if (limit != null && limit <= 0) {
+            throw new BadRequestException("limit must be greater than zero"); // Throws exception for invalid page size
+        }
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new BadRequestException("minPrice must not be greater than maxPrice"); // Throws exception for empty price band
+        }
+        PriceCursor priceCursor = priceOrder && after != null ? parsePriceCursor(after) : null;
+        Long afterId = priceOrder ? null : parseIdCursor(after);
+        String filterClassification = classification == null || classification.isBlank() ? null : classification;
+        // Bounds become units once per request; everything after compares longs
+        long minUnits = minPrice == null ? Long.MIN_VALUE : priceScale.lowerBound(minPrice);
+        long maxUnits = maxPrice == null ? Product.NO_PRICE : priceScale.upperBound(maxPrice);
+        if (minUnits > maxUnits) {
+            return List.of(); // A band narrower than one unit, e.g. 10.001 to 10.009 at scale 2, holds no price
+        }
+        try {
+            List<Long> ids = secondaryIndex.query(filterClassification, minUnits, maxUnits, priceOrder,
+                    priceCursor == null ? Product.NO_PRICE : priceCursor.units(),
+                    priceCursor != null ? priceCursor.id() : afterId == null ? Long.MIN_VALUE : afterId,
+                    limit == null ? Integer.MAX_VALUE : limit);
+            Product[] found = repository.findAllById(toArray(ids));
+            List<Product> products = new ArrayList<>(found.length);
+            for (Product product : found) {
+                // Indexes may lag a concurrent save by a moment, the stored product is the one that must match
+                if (product != null && matches(product, filterClassification, minUnits, maxUnits)) {
+                    products.add(product);
+                }
+            }
+            return products;
+        } catch (Exception exception) {
+            throw new InternalServerErrorException("Error filtering products " + exception.getMessage()); // Throws generic exception for other errors
+        }
+    }
+
+    // Keyset cursor to resume a listing after its last product: the id in id order, "<price units>:<id>" in price
+    // order, which is that product's position in the price index, so products sharing a price are not skipped
+    public String cursorAfter(Product last, String sort) {
+        return isPriceSort(sort) ? priceScale.unitsOf(last) + ":" + last.getId() : String.valueOf(last.getId());
+    }
+
+    public static Long parseIdCursor(String after) {
+        if (after == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(after.trim());
+        } catch (NumberFormatException exception) {
+            throw new BadRequestException("after must be a product id with sort=id"); // Throws exception for a malformed id cursor
+        }
+    }
+
+    // Ranked full-text search over name, description and specifications, best match first
+    public List<Product> search(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new BadRequestException("q must not be null or empty"); // Throws exception for empty search
+        }
+        if (limit <= 0 || limit > MAX_SEARCH_RESULTS) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_SEARCH_RESULTS); // Throws exception for invalid result size
+        }
+        try {
+            Product[] found = repository.findAllById(toArray(searchIndex.query(query, limit)));
+            List<Product> products = new ArrayList<>(found.length);
+            for (Product product : found) {
+                if (product != null) {
+                    products.add(product);
+                }
+            }
+            return products;
+        } catch (Exception exception) {
+            throw new InternalServerErrorException("Error searching products " + exception.getMessage()); // Throws generic exception for other errors
+        }
+    }
+
+    public Stream<Product> streamProducts(Long afterId) {
+        // Lazy view in id order: nothing is copied up front, products are read as the caller consumes them
+        return repository.streamFrom(afterId);
+    }
+
     public Product getProductById(Long productId) {
         if (productId == null) {
-            throw new IllegalArgumentException("productId is required"); // Throws exception for null productId
+            throw new BadRequestException("productId is required"); // Throws exception for null productId
         }
         try {
-            Product product = repository.get(productId);
+            Product product = repository.findById(productId);
             if (product == null) {
-                throw new ProductNotFoundException("Product with ID " + productId + " not found."); // Throws exception if not found
+                throw new ProductNotFoundException(productId); // Throws exception if not found
             }
             return product;
         } catch (ProductNotFoundException notFoundException){
@@ -74,37 +379,298 @@ public class ProductsService {
         }
     }
 
+    // Versions only grow, 0 means the product does not exist
+    public long getProductVersion(long productId) {
+        return repository.versionOf(productId);
+    }
+
+    // Ids of a compare CSV in request order, validated as every *FromCsv method validates them
+    public long[] parseProductIds(String productIdsCsv) {
+        return parseCsv(productIdsCsv);
+    }
+
+    // Versions of the ids in the CSV, in request order
+    public long[] getProductVersions(String productIdsCsv) {
+        return repository.versionsOf(parseCsv(productIdsCsv));
+    }
+
+    // Versions of ids already parsed, in the given order; 0 for a missing id
+    public long[] getProductVersions(long[] productIds) {
+        return repository.versionsOf(productIds);
+    }
+
+    public long getCatalogVersion() {
+        return repository.catalogVersion();
+    }
+
+    public PriceScale priceScale() {
+        return priceScale;
+    }
+
     public List<Product> compare(List<Long> productIds) {
         if (productIds == null) {
-            throw new IllegalArgumentException("productIds must not be null"); // Throws exception for null list
+            throw new BadRequestException("productIds must not be null"); // Throws exception for null list
+        }
+        return compare(toArray(productIds));
+    }
+
+    public List<Product> compare(long[] productIds) {
+        if (productIds == null) {
+            throw new BadRequestException("productIds must not be null"); // Throws exception for null array
         }
-        if (productIds.isEmpty()) {
+        if (productIds.length == 0) {
             return Collections.emptyList();
         }
+        CompareBatch batch = lookupBatch(productIds);
+        if (!batch.isComplete()) {
+            throw new ProductNotFoundException(batch.missingIds().get(0)); // Throws exception if not found
+        }
+        return batch.products();
+    }
+
+    // Partial mode: missing ids are reported next to the products that were found instead of failing the request
+    public CompareResult comparePartial(long[] productIds) {
+        if (productIds == null) {
+            throw new BadRequestException("productIds must not be null"); // Throws exception for null array
+        }
+        if (productIds.length == 0) {
+            return new CompareResult(Collections.emptyList(), Collections.emptyList());
+        }
+        CompareBatch batch = lookupBatch(productIds);
+        return new CompareResult(batch.products(), batch.missingIds());
+    }
+
+    // Only the attributes and specification keys whose values differ, duplicated ids are compared once
+    public ComparisonDiff compareDiff(long[] productIds) {
+        return ComparisonDiffBuilder.build(distinct(compare(productIds)), priceScale::unitsOf);
+    }
+
+    public ComparisonDiff compareDiffFromCsv(String productIdsCsv) {
+        return compareDiff(parseCsv(productIdsCsv));
+    }
+
+    // Every attribute as one column across the products, duplicated ids are compared once
+    public CompareTable compareTable(long[] productIds) {
+        return CompareTableBuilder.build(distinct(compare(productIds)));
+    }
+
+    public CompareTable compareTableFromCsv(String productIdsCsv) {
+        return compareTable(parseCsv(productIdsCsv));
+    }
+
+    public List<Product> compareFromCsv(String productIdsCsv) {
+        return compare(parseCsv(productIdsCsv));
+    }
+
+    // Large comparisons as a lazy stream in request order, resolved one window of ids at a time as the caller
+    // consumes it. Every id is checked up front, so a missing product fails the call before anything is returned.
+    public Stream<Product> streamCompareFromCsv(String productIdsCsv) {
+        long[] productIds = parseCsv(productIdsCsv);
+        long[] versions = repository.versionsOf(productIds);
+        for (int i = 0; i < productIds.length; i++) {
+            if (versions[i] == 0L) {
+                throw new ProductNotFoundException(productIds[i]); // Throws exception if not found
+            }
+        }
+        int windows = (productIds.length + COMPARE_STREAM_WINDOW - 1) / COMPARE_STREAM_WINDOW;
+        return IntStream.range(0, windows)
+                .mapToObj(window -> compare(Arrays.copyOfRange(productIds, window * COMPARE_STREAM_WINDOW,
+                        Math.min(productIds.length, (window + 1) * COMPARE_STREAM_WINDOW))))
+                .flatMap(List::stream);
+    }
+
+    public CompareResult comparePartialFromCsv(String productIdsCsv) {
+        return comparePartial(parseCsv(productIdsCsv));
+    }
+
+    private static List<Product> distinct(List<Product> products) {
+        Set<Long> seenIds = new HashSet<>();
+        List<Product> distinct = new ArrayList<>(products.size());
+        for (Product product : products) {
+            if (seenIds.add(product.getId())) {
+                distinct.add(product);
+            }
+        }
+        return distinct;
+    }
+
+    // Out-of-scale prices are refused here, before anything is stored. A product read back from the store already
+    // carries its units and is left alone, frozen or not.
+    private void normalizePrice(Product product) {
+        long units = priceScale.toUnits(product.getPrice());
+        if (product.getPriceUnits() != units) {
+            product.setPriceUnits(units);
+        }
+    }
+
+    // One atomic reservation for the whole batch instead of one increment per product
+    private void assignIds(Collection<Product> products, int withoutId) {
+        long nextId = idAllocator.reserve(withoutId);
+        for (Product product : products) {
+            if (product.getId() == null) {
+                product.setId(nextId++);
+            } else {
+                idAllocator.observe(product.getId());
+            }
+            product.getSpecificationAttributes(); // Parses specifications at ingest instead of on every comparison
+        }
+    }
+
+    // Built off to the side and swapped in, so readers never see a half-built index. The catalog is indexed from
+    // the store generation current when the rebuild starts, outside the write lock, so saves and deletes keep going;
+    // the ids they touch meanwhile are re-read from the store and applied to the new indexes just before the swap.
+    private void rebuildIndexes() {
+        synchronized (rebuildLock) {
+            Stream<Product> forSecondary;
+            Stream<Product> forSearch;
+            synchronized (writeLock) {
+                idAllocator.observe(repository.maxId());
+                writtenDuringRebuild = new HashSet<>();
+                forSecondary = repository.streamFrom(null);
+                forSearch = repository.streamFrom(null);
+            }
+            ProductSecondaryIndex rebuiltSecondary = new ProductSecondaryIndex(priceScale);
+            ProductSearchIndex rebuiltSearch = new ProductSearchIndex();
+            try {
+                rebuiltSecondary.rebuild(forSecondary);
+                rebuiltSearch.rebuild(forSearch);
+            } catch (RuntimeException exception) {
+                synchronized (writeLock) {
+                    writtenDuringRebuild = null;
+                }
+                throw exception;
+            }
+            synchronized (writeLock) {
+                List<Long> written = new ArrayList<>(writtenDuringRebuild);
+                Product[] current = repository.findAllById(toArray(written));
+                List<Product> saved = new ArrayList<>();
+                List<ProductSearchIndex.Document> documents = new ArrayList<>();
+                List<Long> deleted = new ArrayList<>();
+                for (int i = 0; i < current.length; i++) {
+                    if (current[i] == null) {
+                        deleted.add(written.get(i));
+                    } else {
+                        saved.add(current[i]);
+                        documents.add(ProductSearchIndex.tokenize(current[i]));
+                    }
+                }
+                rebuiltSecondary.update(saved);
+                rebuiltSecondary.remove(deleted);
+                rebuiltSearch.update(documents);
+                rebuiltSearch.remove(deleted);
+                secondaryIndex = rebuiltSecondary;
+                searchIndex = rebuiltSearch;
+                writtenDuringRebuild = null;
+            }
+        }
+    }
+
+    // Called under the write lock
+    private void trackRebuildWrite(long productId) {
+        if (writtenDuringRebuild != null) {
+            writtenDuringRebuild.add(productId);
+        }
+        if (writtenDuringReplacement != null) {
+            writtenDuringReplacement.add(productId);
+        }
+    }
+
+    // Called under writeLock, so the store holds the latest content of every written id: saved ones replace what
+    // the files staged, deleted ones are dropped from it
+    private void reapplyWrites(CatalogReplacement staged, Set<Long> written) {
+        if (written.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(written);
+        Product[] current = repository.findAllById(toArray(ids));
+        List<Product> saved = new ArrayList<>();
+        long[] deleted = new long[current.length];
+        int deletedCount = 0;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == null) {
+                deleted[deletedCount++] = ids.get(i);
+            } else {
+                saved.add(current[i]);
+            }
+        }
+        staged.removeAll(Arrays.copyOf(deleted, deletedCount));
+        staged.addAll(saved);
+    }
+
+    private void notifySaved(Collection<Product> products) {
+        for (ProductChangeListener listener : changeListeners) {
+            listener.onProductsSaved(products);
+        }
+    }
+
+    private CompareBatch lookupBatch(long[] productIds) {
+        CompareBatch batch;
         try {
-            return productIds.stream()
-                    .map(this::getProductById)
-                    .collect(Collectors.toList());
-        } catch (ProductNotFoundException notFoundException) {
-            throw notFoundException; // Throws exception if not found
+            batch = compareLookupTimer.record(() -> CompareBatch.lookup(repository, productIds));
         } catch (Exception exception) {
             throw new InternalServerErrorException("Internal error when comparing products " + exception); // Throws generic exception for other errors
         }
+        compareBatchSize.record(productIds.length);
+        compareHits.increment(batch.distinctIds() - batch.missingIds().size());
+        compareMisses.increment(batch.missingIds().size());
+        return batch;
     }
 
-    public List<Product> compareFromCsv(String productIdsCsv) {
-        if (productIdsCsv == null || productIdsCsv.trim().isEmpty()) {
-            throw new IllegalArgumentException("productIdsCsv must not be null or empty"); // Throws exception for null or empty input
+    private long[] parseCsv(String productIdsCsv) {
+        if (productIdsCsv == null || productIdsCsv.isBlank()) {
+            throw new InvalidProductIdsException("productIdsCsv must not be null or empty"); // Throws exception for null or empty input
         }
+        // The parser's InvalidProductIdsException already names the bad value, it goes out as is
+        return csvIdParser.parseToLongArray(productIdsCsv);
+    }
+
+    private static PriceCursor parsePriceCursor(String after) {
+        String cursor = after.trim();
+        int separator = cursor.indexOf(':', 1);
         try {
-            List<Long> ids = csvIdParser.parseToLongList(productIdsCsv);
-            return compare(ids);
-        } catch (IllegalArgumentException parseEx) {
-            throw new IllegalArgumentException("Invalid productIdsCsv" + parseEx.getMessage(), parseEx); // Throws exception for parsing errors
-        } catch (ProductNotFoundException notFoundException) {
-            throw notFoundException; // Throws exception if not found
-        } catch (Exception exception) {
-            throw new InternalServerErrorException("Internal error when comparing products from CSV " + exception); // Throws generic exception for other errors
+            if (separator > 0) {
+                return new PriceCursor(Long.parseLong(cursor, 0, separator, 10),
+                        Long.parseLong(cursor, separator + 1, cursor.length(), 10));
+            }
+        } catch (NumberFormatException exception) {
+            // Falls through to the same error as a missing separator
+        }
+        throw new BadRequestException("after must be an X-Next-Cursor from a sort=price listing"); // Throws exception for a malformed price cursor
+    }
+
+    private static boolean isPriceSort(String sort) {
+        if (sort == null || sort.equals("id")) {
+            return false;
+        }
+        if (sort.equals("price")) {
+            return true;
         }
+        throw new BadRequestException("sort must be id or price"); // Throws exception for unknown ordering
+    }
+
+    private boolean matches(Product product, String classification, long minUnits, long maxUnits) {
+        if (classification != null && !ProductSecondaryIndex.sameClassification(product.getClassification(), classification)) {
+            return false;
+        }
+        if (minUnits == Long.MIN_VALUE && maxUnits == Product.NO_PRICE) {
+            return true;
+        }
+        long units = priceScale.unitsOf(product);
+        return units != Product.NO_PRICE && units >= minUnits && units <= maxUnits;
+    }
+
+    private static long[] toArray(List<Long> productIds) {
+        long[] ids = new long[productIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Long productId = productIds.get(i);
+            if (productId == null) {
+                throw new BadRequestException("productId is required"); // Throws exception for null productId
+            }
+            ids[i] = productId;
+        }
+        return ids;
+    }
+
+    private record PriceCursor(long units, long id) {
     }
 }
@@ -1,27 +1,118 @@
 package com.example.item_comparation.util;
 
+import com.example.item_comparation.exception.InvalidProductIdsException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @Component
 public class CsvIdParser {
+
+    static final int DEFAULT_MAX_IDS = 1000;
+    static final int DEFAULT_MAX_ID_LENGTH = 20;
+
+    private final int maxIds;
+    private final int maxIdLength;
+
+    public CsvIdParser() {
+        this(DEFAULT_MAX_IDS, DEFAULT_MAX_ID_LENGTH);
+    }
+
+    @Autowired
+    public CsvIdParser(@Value("${products.compare.max-ids:" + DEFAULT_MAX_IDS + "}") int maxIds,
+                       @Value("${products.compare.max-id-length:" + DEFAULT_MAX_ID_LENGTH + "}") int maxIdLength) {
+        if (maxIds <= 0 || maxIdLength <= 0) {
+            throw new IllegalArgumentException("maxIds and maxIdLength must be greater than zero");
+        }
+        this.maxIds = maxIds;
+        this.maxIdLength = maxIdLength;
+    }
+
+    public int maxIds() {
+        return maxIds;
+    }
+
     public List<Long> parseToLongList(String csv) {
+        long[] parsed = parseToLongArray(csv);
+        List<Long> ids = new ArrayList<>(parsed.length);
+        for (long id : parsed) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    // Single pass over the characters: no split, no substrings and no boxing on the success path
+    public long[] parseToLongArray(String csv) {
         if (csv == null || csv.isBlank()) {
-            throw new IllegalArgumentException("Empty productIds");
+            throw new InvalidProductIdsException("Empty productIds");
         }
-        String[] parts = csv.split(",");
-        List<Long> ids = new ArrayList<>();
-        for (String p : parts) {
-            String trimmed = p.trim();
-            if (trimmed.isEmpty()) continue;
-            try {
-                ids.add(Long.parseLong(trimmed));
-            } catch (NumberFormatException ex) {
-                throw new IllegalArgumentException("productIds contain non-numeric value: " + trimmed, ex);
+        int length = csv.length();
+        // Every id takes at least one digit plus a separator, so this bounds the result without a counting pass
+        long[] ids = new long[Math.min(maxIds, (length + 1) / 2)];
+        int count = 0;
+        int position = 0;
+        while (position <= length) {
+            int end = csv.indexOf(',', position);
+            if (end < 0) {
+                end = length;
             }
+            int start = position;
+            while (start < end && csv.charAt(start) <= ' ') {
+                start++;
+            }
+            int tokenEnd = end;
+            while (tokenEnd > start && csv.charAt(tokenEnd - 1) <= ' ') {
+                tokenEnd--;
+            }
+            if (tokenEnd > start) {
+                if (count == maxIds) {
+                    throw new InvalidProductIdsException("productIds contain more than " + maxIds + " ids");
+                }
+                if (tokenEnd - start > maxIdLength) {
+                    throw new InvalidProductIdsException("productIds contain value longer than " + maxIdLength + " characters");
+                }
+                ids[count++] = parseLong(csv, start, tokenEnd);
+            }
+            position = end + 1;
         }
-        return ids;
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    // Same accepted syntax as Long.parseLong: optional sign followed by decimal digits, without overflow
+    private static long parseLong(String csv, int start, int end) {
+        boolean negative = false;
+        int position = start;
+        char first = csv.charAt(position);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            position++;
+            if (position == end) {
+                throw nonNumeric(csv, start, end);
+            }
+        }
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        // Accumulate negatively so Long.MIN_VALUE can be represented
+        long result = 0;
+        for (; position < end; position++) {
+            int digit = csv.charAt(position) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw nonNumeric(csv, start, end);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw nonNumeric(csv, start, end);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private static InvalidProductIdsException nonNumeric(String csv, int start, int end) {
+        return new InvalidProductIdsException("productIds contain non-numeric value: " + csv.substring(start, end));
     }
 }
@@ -0,0 +1,85 @@
+package com.example.item_comparation.util;
+
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.exception.BadRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Fixed-scale price units: with the default scale of 2 a price is a count of cents. Prices are turned into units
+// once, at ingest, so sorting, range checks and aggregates compare primitives; a BigDecimal is only built again to
+// be written out. Units fit a long; Long.MAX_VALUE is Product.NO_PRICE and Long.MIN_VALUE means no lower bound, so
+// neither is a valid price.
+@Component
+public class PriceScale {
+
+    static final int DEFAULT_SCALE = 2;
+    static final int MAX_SCALE = 18;
+
+    private final int scale;
+
+    public PriceScale() {
+        this(DEFAULT_SCALE);
+    }
+
+    @Autowired
+    public PriceScale(@Value("${products.price.scale:" + DEFAULT_SCALE + "}") int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("price scale must be between 0 and " + MAX_SCALE);
+        }
+        this.scale = scale;
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    // Exact conversion for a stored price: more decimal places than the scale, or a value beyond the long range,
+    // is refused rather than rounded
+    public long toUnits(BigDecimal price) {
+        if (price == null) {
+            return Product.NO_PRICE;
+        }
+        BigDecimal scaled;
+        try {
+            scaled = price.setScale(scale, RoundingMode.UNNECESSARY);
+        } catch (ArithmeticException exception) {
+            throw new BadRequestException("price " + price.toPlainString() + " has more than " + scale + " decimal places"); // Throws exception for an out-of-scale price
+        }
+        long units = scaled.unscaledValue().longValue();
+        if (scaled.unscaledValue().bitLength() > 63 || units == Product.NO_PRICE || units == Long.MIN_VALUE) {
+            throw new BadRequestException("price " + price.toPlainString() + " is out of range"); // Throws exception for a price beyond the units range
+        }
+        return units;
+    }
+
+    // The units stored with the product; only a priced product that never went through ingest is converted here
+    public long unitsOf(Product product) {
+        long units = product.getPriceUnits();
+        return units != Product.NO_PRICE || product.getPrice() == null ? units : toUnits(product.getPrice());
+    }
+
+    public BigDecimal toPrice(long units) {
+        return units == Product.NO_PRICE ? null : BigDecimal.valueOf(units, scale);
+    }
+
+    // Query bounds are not stored, so they round instead of being refused: an inclusive lower bound rounds up and
+    // an inclusive upper bound rounds down to the units that still satisfy it. Both stay within the valid units.
+    public long lowerBound(BigDecimal minPrice) {
+        return clamp(minPrice.setScale(scale, RoundingMode.CEILING));
+    }
+
+    public long upperBound(BigDecimal maxPrice) {
+        return clamp(maxPrice.setScale(scale, RoundingMode.FLOOR));
+    }
+
+    private static long clamp(BigDecimal scaled) {
+        if (scaled.unscaledValue().bitLength() > 63) {
+            return scaled.signum() < 0 ? Long.MIN_VALUE + 1 : Product.NO_PRICE - 1;
+        }
+        return Math.max(Long.MIN_VALUE + 1, Math.min(scaled.unscaledValue().longValue(), Product.NO_PRICE - 1));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.item_comparation.util;
+
+import com.example.item_comparation.domain.Product;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+@Component
+public class ProductJsonStreamWriter {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter productWriter;
+
+    public ProductJsonStreamWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // Flushing after every product would turn each element into its own network write
+        this.productWriter = objectMapper.writerFor(Product.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void writeArray(Iterator<Product> products, OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            generator.writeStartArray();
+            while (products.hasNext()) {
+                productWriter.writeValue(generator, products.next());
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    public void writeNdjson(Iterator<Product> products, OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            while (products.hasNext()) {
+                productWriter.writeValue(generator, products.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        // The servlet container owns the response stream, the generator must not close it
+        return objectMapper.getFactory()
+                .createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.item_comparation.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Splits text into lower-case search terms with accents folded ("Eletrônicos" -> "eletronicos"), so queries
+// match with or without diacritics. Common Portuguese stopwords are dropped.
+public final class SearchTokenizer {
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "o", "as", "os", "e", "de", "da", "do", "das", "dos", "em", "na", "no", "nas", "nos",
+            "um", "uma", "com", "para", "por", "que", "se", "ou");
+
+    private SearchTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        List<String> terms = new ArrayList<>();
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? fold(text.charAt(i)) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.append(c);
+            } else if (!term.isEmpty()) {
+                String candidate = term.toString();
+                if (!STOPWORDS.contains(candidate)) {
+                    terms.add(candidate);
+                }
+                term.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    // Per-character folding covers the Latin-1 letters of the catalog without a Normalizer pass per string
+    private static char fold(char c) {
+        char lower = Character.toLowerCase(c);
+        return switch (lower) {
+            case 'á', 'à', 'â', 'ã', 'ä' -> 'a';
+            case 'é', 'è', 'ê', 'ë' -> 'e';
+            case 'í', 'ì', 'î', 'ï' -> 'i';
+            case 'ó', 'ò', 'ô', 'õ', 'ö' -> 'o';
+            case 'ú', 'ù', 'û', 'ü' -> 'u';
+            case 'ç' -> 'c';
+            case 'ñ' -> 'n';
+            default -> lower;
+        };
+    }
+}
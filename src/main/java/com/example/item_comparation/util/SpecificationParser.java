@@ -0,0 +1,33 @@
+package com.example.item_comparation.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Parses the "Key: Value, Key: Value" specifications text into an ordered key -> value map
+public final class SpecificationParser {
+
+    private SpecificationParser() {
+    }
+
+    public static Map<String, String> parse(String specifications) {
+        if (specifications == null || specifications.isBlank()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> attributes = new LinkedHashMap<>();
+        String lastKey = null;
+        for (String part : specifications.split(",")) {
+            int separator = part.indexOf(':');
+            if (separator > 0) {
+                lastKey = part.substring(0, separator).trim();
+                attributes.put(lastKey, part.substring(separator + 1).trim());
+            } else if (lastKey != null) {
+                // A comma inside a value, e.g. "Cores: Preto, Branco"
+                attributes.put(lastKey, attributes.get(lastKey) + "," + part);
+            } else if (!part.isBlank()) {
+                attributes.put(part.trim(), "");
+            }
+        }
+        return Collections.unmodifiableMap(attributes);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.item_comparation;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactiveItemComparationApplicationTests {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Test
+	void shouldServeCatalogFromReactiveController() {
+		webTestClient.get().uri("/products/1")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.id").isEqualTo(1);
+	}
+
+}
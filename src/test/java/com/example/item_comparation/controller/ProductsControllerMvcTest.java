@@ -1,24 +1,55 @@
 package com.example.item_comparation.controller;
 
+import com.example.item_comparation.domain.CompareResult;
+import com.example.item_comparation.domain.CompareTable;
+import com.example.item_comparation.domain.ComparisonDiff;
 import com.example.item_comparation.domain.Product;
 import com.example.item_comparation.exception.GlobalHandlerController;
+import com.example.item_comparation.exception.InvalidProductIdsException;
 import com.example.item_comparation.exception.ProductNotFoundException;
+import com.example.item_comparation.service.CompareAdmission;
+import com.example.item_comparation.service.CompareJsonCache;
+import com.example.item_comparation.service.ProductJsonCache;
 import com.example.item_comparation.service.ProductsService;
+import com.example.item_comparation.util.ProductJsonStreamWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -30,11 +61,19 @@ class ProductsControllerMvcTest {
     @Mock
     private ProductsService productsService;
 
+    @Spy
+    private ProductJsonStreamWriter productJsonStreamWriter = new ProductJsonStreamWriter(new ObjectMapper());
+
     @InjectMocks
     private ProductsController productsController;
 
     @BeforeEach
     void setUp() {
+        ProductJsonCache productJsonCache = new ProductJsonCache(productsService, new ObjectMapper(), new SimpleMeterRegistry(), 100);
+        ReflectionTestUtils.setField(productsController, "productJsonCache", productJsonCache);
+        ReflectionTestUtils.setField(productsController, "compareJsonCache",
+                new CompareJsonCache(productsService, productJsonCache, new SimpleMeterRegistry(), 100, 16));
+        ReflectionTestUtils.setField(productsController, "productETags", new ProductETags());
         mockMvc = MockMvcBuilders.standaloneSetup(productsController)
                 .setControllerAdvice(new GlobalHandlerController())
                 .build();
@@ -42,9 +81,13 @@ class ProductsControllerMvcTest {
 
     @Test
     void shouldReturn200AndEmptyArrayWhenGetAllProducts() throws Exception {
-        when(productsService.getAllProducts()).thenReturn(List.of());
+        when(productsService.streamProducts(isNull())).thenReturn(Stream.empty());
+
+        MvcResult result = mockMvc.perform(get("/products").accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
 
-        mockMvc.perform(get("/products").accept(MediaType.APPLICATION_JSON))
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(content().json("[]"));
     }
@@ -52,14 +95,100 @@ class ProductsControllerMvcTest {
     @Test
     void shouldReturn200AndArrayWhenGetAllProducts() throws Exception {
         Product p = sampleProduct();
-        when(productsService.getAllProducts()).thenReturn(List.of(p));
+        when(productsService.streamProducts(isNull())).thenReturn(Stream.of(p));
 
-        mockMvc.perform(get("/products").accept(MediaType.APPLICATION_JSON))
+        MvcResult result = mockMvc.perform(get("/products").accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].id").value(p.getId()))
                 .andExpect(jsonPath("$[0].name").value(p.getName()));
     }
 
+    @Test
+    void shouldReturnPageWithNextCursorWhenLimitIsFilled() throws Exception {
+        Product p1 = sampleProduct();
+        Product p2 = sampleProduct();
+        p2.setId(2L);
+        when(productsService.getProductsPage(null, 2)).thenReturn(List.of(p1, p2));
+        when(productsService.cursorAfter(p2, null)).thenReturn("2");
+
+        mockMvc.perform(get("/products").param("limit", "2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "2"))
+                .andExpect(jsonPath("$[1].id").value(2));
+    }
+
+    @Test
+    void shouldReturnLastPageWithoutNextCursor() throws Exception {
+        Product p = sampleProduct();
+        when(productsService.getProductsPage(1L, 10)).thenReturn(List.of(p));
+
+        mockMvc.perform(get("/products").param("after", "1").param("limit", "10").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    void shouldRejectMalformedIdCursorBeforeStreaming() throws Exception {
+        mockMvc.perform(get("/products").param("after", "1000:7").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verify(productsService, times(0)).streamProducts(any());
+    }
+
+    @Test
+    void shouldServeFilteredPageFromSecondaryIndexesWithPriceCursorWhenSortedByPrice() throws Exception {
+        Product p = sampleProduct();
+        when(productsService.findProducts("Eletrônicos", new BigDecimal("10"), null, "price", "1000:7", 1)).thenReturn(List.of(p));
+        when(productsService.cursorAfter(p, "price")).thenReturn("1500:1");
+
+        mockMvc.perform(get("/products")
+                        .param("classification", "Eletrônicos")
+                        .param("minPrice", "10")
+                        .param("sort", "price")
+                        .param("after", "1000:7")
+                        .param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "1500:1"))
+                .andExpect(jsonPath("$[0].id").value(1));
+        verify(productsService, times(0)).getProductsPage(isNull(), anyInt());
+    }
+
+    @Test
+    void shouldRouteSearchBeforeProductIdPath() throws Exception {
+        Product p = sampleProduct();
+        when(productsService.search("notebook", 20)).thenReturn(List.of(p));
+
+        mockMvc.perform(get("/products/search").param("q", "notebook").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    void shouldStreamNdjsonWhenRequested() throws Exception {
+        Product p1 = sampleProduct();
+        Product p2 = sampleProduct();
+        p2.setId(2L);
+        when(productsService.streamProducts(isNull())).thenReturn(Stream.of(p1, p2));
+
+        MvcResult result = mockMvc.perform(get("/products").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains("\"id\":2"));
+    }
+
     @Test
     void shouldReturn404AndErrorResponseWhenGetProductByIdNotFound() throws Exception {
         when(productsService.getProductById(anyLong())).thenThrow(new ProductNotFoundException("not found"));
@@ -71,6 +200,75 @@ class ProductsControllerMvcTest {
                 .andExpect(jsonPath("$.path").value("/products/999"));
     }
 
+    @Test
+    void shouldReturn400AndErrorResponseWhenCompareIdsAreInvalid() throws Exception {
+        when(productsService.parseProductIds("1,x"))
+                .thenThrow(new InvalidProductIdsException("productIds contain non-numeric value: x"));
+
+        mockMvc.perform(get("/products/compare/1,x").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.error").value("Bad Request"))
+                .andExpect(jsonPath("$.message").value("productIds contain non-numeric value: x"))
+                .andExpect(jsonPath("$.path").value("/products/compare/1,x"));
+    }
+
+    @Test
+    void shouldLeaveAnIllegalArgumentTheCallerDidNotCauseToTheServerErrorPath() {
+        when(productsService.parseProductIds("1,2"))
+                .thenThrow(new IllegalArgumentException("bucket count must be a power of two"));
+
+        ServletException exception = assertThrows(ServletException.class,
+                () -> mockMvc.perform(get("/products/compare/1,2").accept(MediaType.APPLICATION_JSON)));
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    }
+
+    @Test
+    void shouldShedCompareWith429BeforeParsingWhenClientIsOverItsRate() throws Exception {
+        CompareAdmission admission = new CompareAdmission(1, 3, 100, 0, new SimpleMeterRegistry());
+        MockMvc limited = MockMvcBuilders.standaloneSetup(productsController)
+                .setControllerAdvice(new GlobalHandlerController())
+                .addFilters(new CompareAdmissionFilter(admission, Jackson2ObjectMapperBuilder.json().build(), "X-Client-Id",
+                        new String[]{"127.0.0.1"}))
+                .build();
+        when(productsService.parseProductIds("1,2,3")).thenReturn(new long[]{1L, 2L, 3L});
+        when(productsService.compare(any(long[].class))).thenReturn(List.of(sampleProduct()));
+        when(productsService.getProductById(anyLong())).thenReturn(sampleProduct());
+
+        limited.perform(get("/products/compare/1,2,3").header("X-Client-Id", "listing"))
+                .andExpect(status().isOk());
+        limited.perform(get("/products/compare/4,5").header("X-Client-Id", "listing"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.status").value(429))
+                .andExpect(jsonPath("$.path").value("/products/compare/4,5"));
+
+        verify(productsService, never()).parseProductIds("4,5");
+    }
+
+    @Test
+    void shouldKeyCompareBucketByAddressWhenClientHeaderDoesNotComeFromATrustedProxy() throws Exception {
+        CompareAdmission admission = new CompareAdmission(1, 3, 100, 0, new SimpleMeterRegistry());
+        MockMvc limited = MockMvcBuilders.standaloneSetup(productsController)
+                .setControllerAdvice(new GlobalHandlerController())
+                .addFilters(new CompareAdmissionFilter(admission, Jackson2ObjectMapperBuilder.json().build(), "X-Client-Id",
+                        new String[]{"10.0.0.2"}))
+                .build();
+        when(productsService.parseProductIds("1,2,3")).thenReturn(new long[]{1L, 2L, 3L});
+        when(productsService.compare(any(long[].class))).thenReturn(List.of(sampleProduct()));
+        when(productsService.getProductById(anyLong())).thenReturn(sampleProduct());
+
+        limited.perform(get("/products/compare/1,2,3").header("X-Client-Id", "first"))
+                .andExpect(status().isOk());
+        limited.perform(get("/products/compare/4,5").header("X-Client-Id", "second"))
+                .andExpect(status().isTooManyRequests());
+        limited.perform(get("/products/compare/1,2,3").header("X-Client-Id", "third").with(request -> {
+                    request.setRemoteAddr("10.0.0.2");
+                    return request;
+                }))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void shouldReturn200AndProductWhenGetProductByIdFound() throws Exception {
         Product p = sampleProduct();
@@ -87,7 +285,10 @@ class ProductsControllerMvcTest {
         Product p1 = sampleProduct();
         Product p2 = sampleProduct();
         p2.setId(2L);
-        when(productsService.compareFromCsv("1,2")).thenReturn(List.of(p1, p2));
+        when(productsService.parseProductIds("1,2")).thenReturn(new long[]{1L, 2L});
+        when(productsService.compare(any(long[].class))).thenReturn(List.of(p1, p2));
+        when(productsService.getProductById(1L)).thenReturn(p1);
+        when(productsService.getProductById(2L)).thenReturn(p2);
 
         mockMvc.perform(get("/products/compare/1,2").accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -97,12 +298,130 @@ class ProductsControllerMvcTest {
 
     @Test
     void shouldReturn204NoContentWhenCompareFromCsvEmpty() throws Exception {
-        when(productsService.compareFromCsv("3,4")).thenReturn(List.of());
+        when(productsService.parseProductIds("3,4")).thenReturn(new long[0]);
+        when(productsService.compare(any(long[].class))).thenReturn(List.of());
 
         mockMvc.perform(get("/products/compare/3,4").accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    void shouldReturn200WithMissingIdsWhenComparePartial() throws Exception {
+        Product p = sampleProduct();
+        when(productsService.comparePartialFromCsv("1,5")).thenReturn(new CompareResult(List.of(p), List.of(5L)));
+
+        mockMvc.perform(get("/products/compare/1,5").param("partial", "true").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].id").value(1))
+                .andExpect(jsonPath("$.missingIds[0]").value(5));
+    }
+
+    @Test
+    void shouldReturn200WithDiffWhenCompareViewIsDiff() throws Exception {
+        ComparisonDiff diff = new ComparisonDiff(List.of(1L, 2L), BigDecimal.ONE, BigDecimal.TEN,
+                Map.of("price", List.of(BigDecimal.ONE, BigDecimal.TEN)), Map.of("RAM", List.of("8GB", "16GB")));
+        when(productsService.compareDiffFromCsv("1,2")).thenReturn(diff);
+
+        mockMvc.perform(get("/products/compare/1,2").param("view", "diff").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.maxPrice").value(10))
+                .andExpect(jsonPath("$.specifications.RAM[1]").value("16GB"))
+                .andExpect(jsonPath("$.attributes.price[0]").value(1));
+    }
+
+    @Test
+    void shouldReturn200WithColumnsWhenCompareViewIsTable() throws Exception {
+        CompareTable table = new CompareTable(List.of(1L, 2L), List.of("A", "B"), List.of("http://a", "http://b"),
+                List.of("a", "b"), List.of(BigDecimal.ONE, BigDecimal.TEN), List.of("X", "X"),
+                Map.of("RAM", List.of("8GB", "16GB")));
+        when(productsService.compareTableFromCsv("1,2")).thenReturn(table);
+
+        mockMvc.perform(get("/products/compare/1,2").param("view", "table").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id[1]").value(2))
+                .andExpect(jsonPath("$.price[1]").value(10))
+                .andExpect(jsonPath("$.specifications.RAM[0]").value("8GB"));
+    }
+
+    @Test
+    void shouldServeCompareAsSmileWithItsOwnETagWhenAccepted() throws Exception {
+        Product p1 = sampleProduct();
+        Product p2 = sampleProduct();
+        p2.setId(2L);
+        when(productsService.getProductVersions("1,2")).thenReturn(new long[]{3L, 4L});
+        when(productsService.compareFromCsv("1,2")).thenReturn(List.of(p1, p2));
+        when(productsService.parseProductIds("1,2")).thenReturn(new long[]{1L, 2L});
+        when(productsService.compare(any(long[].class))).thenReturn(List.of(p1, p2));
+        when(productsService.getProductById(1L)).thenReturn(p1);
+        when(productsService.getProductById(2L)).thenReturn(p2);
+
+        MvcResult smile = mockMvc.perform(get("/products/compare/1,2").accept(ResponseFormats.SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ResponseFormats.SMILE))
+                .andExpect(header().string("Vary", "Accept"))
+                .andReturn();
+        String jsonETag = mockMvc.perform(get("/products/compare/1,2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Vary", "Accept"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        Product[] decoded = new ObjectMapper(new SmileFactory())
+                .readValue(smile.getResponse().getContentAsByteArray(), Product[].class);
+        assertEquals(List.of(1L, 2L), Stream.of(decoded).map(Product::getId).toList());
+        assertEquals(p1.getName(), decoded[0].getName());
+        assertNotEquals(jsonETag, smile.getResponse().getHeader("ETag"));
+    }
+
+    @Test
+    void shouldKeepJsonForWildcardAcceptAndPickSmileOnlyWhenPreferred() {
+        assertFalse(ResponseFormats.prefersSmile(MediaType.parseMediaTypes("*/*")));
+        assertFalse(ResponseFormats.prefersSmile(MediaType.parseMediaTypes("application/json, application/x-jackson-smile")));
+        assertFalse(ResponseFormats.prefersSmile(MediaType.parseMediaTypes("application/x-jackson-smile;q=0.5, application/json")));
+        assertTrue(ResponseFormats.prefersSmile(MediaType.parseMediaTypes("*/*, application/x-jackson-smile")));
+        assertTrue(ResponseFormats.prefersSmile(MediaType.parseMediaTypes("application/x-jackson-smile, application/json;q=0.9")));
+    }
+
+    @Test
+    void shouldReturn304WithoutLookupWhenProductETagMatches() throws Exception {
+        Product p = sampleProduct();
+        when(productsService.getProductVersion(1L)).thenReturn(7L);
+        when(productsService.getProductById(1L)).thenReturn(p);
+
+        String eTag = mockMvc.perform(get("/products/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/products/1").header("If-None-Match", eTag).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(productsService, times(1)).getProductById(1L);
+    }
+
+    @Test
+    void shouldNotMatchATagFromAnotherProcessForTheSameVersion() {
+        // Version 2 of product 7 after a restart may be another write than version 2 before it
+        assertNotEquals(new ProductETags().product(2L), new ProductETags().product(2L));
+    }
+
+    @Test
+    void shouldReturn304FromTheCachedCompareWithoutComparingAgain() throws Exception {
+        Product p1 = sampleProduct();
+        when(productsService.parseProductIds("1")).thenReturn(new long[]{1L});
+        when(productsService.getProductVersion(1L)).thenReturn(3L);
+        when(productsService.getProductVersions(new long[]{1L})).thenReturn(new long[]{3L});
+        when(productsService.compare(any(long[].class))).thenReturn(List.of(p1));
+        when(productsService.getProductById(1L)).thenReturn(p1);
+
+        String eTag = mockMvc.perform(get("/products/compare/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/products/compare/1").header("If-None-Match", eTag).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+        verify(productsService, times(1)).compare(any(long[].class));
+    }
+
     private Product sampleProduct() {
         Product p = new Product();
         p.setId(1L);
@@ -0,0 +1,192 @@
+package com.example.item_comparation.controller;
+
+import com.example.item_comparation.domain.BatchIngestReport;
+import com.example.item_comparation.domain.CompareTable;
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.exception.ReactiveGlobalHandlerController;
+import com.example.item_comparation.service.CompareJsonCache;
+import com.example.item_comparation.service.ProductBatchIngester;
+import com.example.item_comparation.service.ProductJsonCache;
+import com.example.item_comparation.service.ProductsService;
+import com.example.item_comparation.util.CsvIdParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.reactive.context.AnnotationConfigReactiveWebApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.config.EnableWebFlux;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReactiveProductsControllerTest {
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        ProductsService productsService = new ProductsService(new CsvIdParser());
+        List<Product> products = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            products.add(createProduct("Produto " + i, i));
+        }
+        productsService.saveAll(products);
+
+        // bindToController would autowire the controller's fields, so register the real service alongside it
+        var context = new AnnotationConfigReactiveWebApplicationContext();
+        context.registerBean(ProductsService.class, () -> productsService);
+        context.registerBean(ProductETags.class, () -> new ProductETags());
+        ProductJsonCache productJsonCache = new ProductJsonCache(productsService, new ObjectMapper(), new SimpleMeterRegistry(), 100);
+        context.registerBean(ProductJsonCache.class, () -> productJsonCache);
+        context.registerBean(CompareJsonCache.class,
+                () -> new CompareJsonCache(productsService, productJsonCache, new SimpleMeterRegistry(), 100, 16));
+        context.registerBean(ProductBatchIngester.class,
+                () -> new ProductBatchIngester(productsService, new ObjectMapper(), 2));
+        context.register(WebFluxConfig.class, ReactiveProductsController.class, ReactiveGlobalHandlerController.class);
+        context.refresh();
+        webTestClient = WebTestClient.bindToApplicationContext(context).build();
+    }
+
+    @Configuration
+    @EnableWebFlux
+    static class WebFluxConfig {
+    }
+
+    @Test
+    void shouldServeCompareTableAsSmileWhenAccepted() throws Exception {
+        byte[] body = webTestClient.get().uri("/products/compare/3,1?view=table")
+                .accept(ResponseFormats.SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(ResponseFormats.SMILE)
+                .expectBody().returnResult().getResponseBody();
+
+        CompareTable table = new ObjectMapper(new SmileFactory()).readValue(body, CompareTable.class);
+        assertEquals(List.of(3L, 1L), table.id());
+        assertEquals(List.of("Produto 3", "Produto 1"), table.name());
+
+        webTestClient.get().uri("/products/compare/3,1?view=table")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody().jsonPath("$.price[1]").isEqualTo(1);
+    }
+
+    @Test
+    void shouldApplyNdjsonBatchAsBodyArrives() {
+        String payload = String.join("\n",
+                "{\"op\":\"delete\",\"id\":1}",
+                "{\"op\":\"upsert\",\"product\":{\"id\":2,\"name\":\"Renomeado\"}}",
+                "{\"op\":\"delete\",\"id\":999}") + "\n";
+
+        BatchIngestReport report = webTestClient.post().uri("/products/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(payload)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BatchIngestReport.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertEquals(3, report.lines());
+        assertEquals(1, report.upserted());
+        assertEquals(1, report.deleted());
+        assertEquals(1, report.notFound());
+        webTestClient.get().uri("/products/1").exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/products/2").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.name").isEqualTo("Renomeado");
+    }
+
+    @Test
+    void shouldStreamCatalogAsNdjsonUpToLimit() {
+        var body = webTestClient.get().uri("/products?after=10&limit=3")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Product.class)
+                .getResponseBody();
+
+        assertEquals(List.of(11L, 12L, 13L), body.map(Product::getId).collectList().block());
+    }
+
+    @Test
+    void shouldStreamLargeComparisonInRequestOrderAcrossWindows() {
+        StringBuilder ids = new StringBuilder();
+        for (int i = 150; i >= 1; i--) {
+            ids.append(i).append(i > 1 ? "," : "");
+        }
+
+        var body = webTestClient.get().uri("/products/compare/" + ids)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("ETag")
+                .returnResult(Product.class)
+                .getResponseBody();
+
+        List<Long> streamed = body.map(Product::getId).collectList().block();
+        assertEquals(150, streamed.size());
+        assertEquals(List.of(150L, 149L), streamed.subList(0, 2));
+        assertEquals(1L, streamed.get(149));
+    }
+
+    @Test
+    void shouldReturn404BeforeStreamingWhenComparedProductIsMissing() {
+        webTestClient.get().uri("/products/compare/1,999")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Product with ID 999 not found.");
+    }
+
+    @Test
+    void shouldReturn400WhenComparedIdsAreInvalid() {
+        webTestClient.get().uri("/products/compare/1,abc")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.message").isEqualTo("productIds contain non-numeric value: abc");
+    }
+
+    @Test
+    void shouldServeCompareAsJsonArrayAndAnswerConditionalRequest() {
+        String eTag = webTestClient.get().uri("/products/compare/2,1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectHeader().valueEquals("Vary", "Accept")
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(2)
+                .jsonPath("$[1].id").isEqualTo(1)
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient.get().uri("/products/compare/2,1")
+                .header("If-None-Match", eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    private Product createProduct(String name, double price) {
+        Product p = new Product();
+        p.setName(name);
+        p.setPrice(BigDecimal.valueOf(price));
+        p.setClassification("Eletrônicos");
+        p.setSpecifications("Tipo: Óptico");
+        return p;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.service.ProductsService;
+import com.example.item_comparation.util.CsvIdParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class CatalogWatcherTest {
+
+    @Test
+    void shouldReloadCatalogWhenFileIsReplaced(@TempDir Path tempDir) throws Exception {
+        Path catalog = Files.writeString(tempDir.resolve("products.json"), "[{\"id\":1,\"name\":\"A\"}]");
+        ProductsService productsService = new ProductsService(new CsvIdParser());
+        DataLoader loader = new DataLoader(productsService, new Resource[]{new FileSystemResource(catalog)}, 10, 1, null, null);
+        loader.run();
+        CatalogWatcher watcher = new CatalogWatcher(loader, 50);
+        watcher.start();
+        try {
+            // Written next to the catalog and moved over it, the way deploy tools replace files
+            Path staged = Files.writeString(tempDir.resolve("products.json.tmp"), "[{\"id\":1,\"name\":\"A2\"}]");
+            Files.move(staged, catalog, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (loader.lastReload() == null && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+
+            assertNotNull(loader.lastReload());
+            assertEquals("watch", loader.lastReload().trigger());
+            assertEquals("A2", productsService.getProductById(1L).getName());
+        } finally {
+            watcher.stop();
+        }
+    }
+}
@@ -1,14 +1,40 @@
 package com.example.item_comparation.repository;
 
+import com.example.item_comparation.domain.Product;
 import com.example.item_comparation.exception.DataLoadException;
+import com.example.item_comparation.exception.ProductNotFoundException;
 import com.example.item_comparation.service.ProductsService;
+import com.example.item_comparation.util.CsvIdParser;
+import com.example.item_comparation.util.PriceScale;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class DataLoaderTest {
 
@@ -18,7 +44,7 @@ class DataLoaderTest {
 
         DataLoader loader = new DataLoader(productsService) {
             @Override
-            protected InputStream openProductsInputStream() {
+            protected InputStream openProductsInputStream(Resource shard) {
                 String notJson = "<root>this is xml, not json</root>";
                 return new ByteArrayInputStream(notJson.getBytes(java.nio.charset.StandardCharsets.UTF_8));
             }
@@ -26,5 +52,132 @@ class DataLoaderTest {
 
         assertThrows(DataLoadException.class, () -> loader.run());
     }
-}
 
+    @Test
+    void shouldSaveProductsInBoundedBatchesWhenLoadingCatalog() throws Exception {
+        ProductsService productsService = mock(ProductsService.class);
+        String json = "[{\"id\":1,\"name\":\"A\"},{\"id\":2,\"name\":\"B\"},{\"id\":3,\"name\":\"C\"},"
+                + "{\"id\":4,\"name\":\"D\"},{\"id\":5,\"name\":\"E\"}]";
+
+        DataLoader loader = new DataLoader(productsService, new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8)), 2);
+        loader.run();
+
+        verify(productsService, times(3)).saveAll(anyList());
+    }
+
+    @Test
+    void shouldThrowDataLoadExceptionWhenJsonIsNotAnArray() {
+        ProductsService productsService = mock(ProductsService.class);
+        String json = "{\"id\":1,\"name\":\"A\"}";
+
+        DataLoader loader = new DataLoader(productsService, new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8)), 2);
+
+        assertThrows(DataLoadException.class, () -> loader.run());
+    }
+
+    @Test
+    void shouldLoadAllShardsAndOnlyThenAcceptTraffic() throws Exception {
+        ProductsService productsService = mock(ProductsService.class);
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        Resource[] shards = {
+                jsonResource("[{\"id\":1,\"name\":\"A\"},{\"id\":2,\"name\":\"B\"}]"),
+                jsonResource("[{\"id\":3,\"name\":\"C\"}]"),
+                jsonResource("[]")
+        };
+
+        DataLoader loader = new DataLoader(productsService, shards, 10, 3, eventPublisher, null);
+        loader.run();
+
+        verify(productsService, times(2)).saveAll(anyList());
+        ArgumentCaptor<AvailabilityChangeEvent<?>> events = ArgumentCaptor.forClass(AvailabilityChangeEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        List<Object> states = events.getAllValues().stream().map(event -> (Object) event.getState()).toList();
+        assertEquals(List.of(ReadinessState.REFUSING_TRAFFIC, ReadinessState.ACCEPTING_TRAFFIC), states);
+    }
+
+    @Test
+    void shouldRecordLoadDurationAndThroughput() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Resource[] shards = {jsonResource("[{\"id\":1,\"name\":\"A\"},{\"id\":2,\"name\":\"B\"}]")};
+
+        new DataLoader(mock(ProductsService.class), shards, 10, 1, null, null, meterRegistry, false).run();
+
+        assertEquals(1, meterRegistry.get("products.catalog.load").tag("source", "json").timer().count());
+        assertEquals(2.0, meterRegistry.get("products.catalog.loaded").tag("source", "json").counter().count());
+        assertTrue(meterRegistry.get("products.catalog.load.throughput").gauge().value() > 0);
+    }
+
+    @Test
+    void shouldThrowDataLoadExceptionWhenAnyShardFails() {
+        ProductsService productsService = mock(ProductsService.class);
+        Resource[] shards = {jsonResource("[{\"id\":1,\"name\":\"A\"}]"), jsonResource("not json")};
+
+        DataLoader loader = new DataLoader(productsService, shards, 10, 2, null, null);
+
+        assertThrows(DataLoadException.class, () -> loader.run());
+    }
+
+    @Test
+    void shouldOpenSnapshotInsteadOfParsingJsonOnSecondBoot(@TempDir Path tempDir) throws Exception {
+        Path catalog = Files.writeString(tempDir.resolve("products.json"), "[{\"id\":1,\"name\":\"A\"},{\"id\":2,\"name\":\"B\"}]");
+        Path snapshot = tempDir.resolve("products.snapshot");
+        Resource[] shards = {new FileSystemResource(catalog)};
+
+        MappedSnapshotProductRepository firstStore = new MappedSnapshotProductRepository(snapshot);
+        new DataLoader(new ProductsService(new CsvIdParser(), firstStore), shards, 10, 1, null, firstStore).run();
+        assertTrue(Files.exists(snapshot));
+
+        ProductsService productsService = mock(ProductsService.class);
+        when(productsService.priceScale()).thenReturn(new PriceScale());
+        MappedSnapshotProductRepository secondStore = new MappedSnapshotProductRepository(snapshot);
+        new DataLoader(productsService, shards, 10, 1, null, secondStore).run();
+
+        verify(productsService, never()).saveAll(anyList());
+        verify(productsService).syncWithStore();
+        assertEquals("B", secondStore.findById(2L).getName());
+    }
+
+    @Test
+    void shouldReloadChangedCatalogFileAndReportChanges(@TempDir Path tempDir) throws Exception {
+        Path catalog = Files.writeString(tempDir.resolve("products.json"),
+                "[{\"id\":1,\"name\":\"A\"},{\"id\":2,\"name\":\"B\"},{\"id\":3,\"name\":\"C\"}]");
+        ProductsService productsService = new ProductsService(new CsvIdParser());
+        DataLoader loader = new DataLoader(productsService, new Resource[]{new FileSystemResource(catalog)}, 2, 1, null, null);
+        loader.run();
+        long unchangedVersion = productsService.getProductVersion(1L);
+
+        Files.writeString(catalog,
+                "[{\"id\":1,\"name\":\"A\"},{\"id\":2,\"name\":\"B2\"},{\"id\":4,\"name\":\"Notebook\"}]");
+        CatalogReload reload = loader.reload("test");
+
+        assertEquals(new CatalogChanges(1, 1, 1, 1), reload.changes());
+        assertEquals(3, reload.productsRead());
+        assertEquals(reload, loader.lastReload());
+        assertEquals(unchangedVersion, productsService.getProductVersion(1L));
+        assertTrue(productsService.getProductVersion(2L) > unchangedVersion);
+        assertEquals("B2", productsService.getProductById(2L).getName());
+        assertThrows(ProductNotFoundException.class, () -> productsService.getProductById(3L));
+        assertEquals(List.of(1L, 2L, 4L), productsService.getAllProducts().stream().map(Product::getId).toList());
+        assertEquals(4L, productsService.search("notebook", 10).get(0).getId());
+    }
+
+    @Test
+    void shouldKeepCurrentCatalogWhenReloadFails(@TempDir Path tempDir) throws Exception {
+        Path catalog = Files.writeString(tempDir.resolve("products.json"), "[{\"id\":1,\"name\":\"A\"}]");
+        ProductsService productsService = new ProductsService(new CsvIdParser());
+        DataLoader loader = new DataLoader(productsService, new Resource[]{new FileSystemResource(catalog)}, 10, 1, null, null);
+        loader.run();
+        long catalogVersion = productsService.getCatalogVersion();
+
+        Files.writeString(catalog, "[{\"id\":2,\"name\":\"B\"}, not json");
+
+        assertThrows(DataLoadException.class, () -> loader.reload("test"));
+        assertEquals(catalogVersion, productsService.getCatalogVersion());
+        assertEquals("A", productsService.getProductById(1L).getName());
+        assertNull(loader.lastReload());
+    }
+
+    private Resource jsonResource(String json) {
+        return new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedSnapshotProductRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldServeProductsFromSnapshotWrittenByAnotherInstance() throws Exception {
+        Path snapshotPath = tempDir.resolve("products.snapshot");
+        MappedSnapshotProductRepository source = new MappedSnapshotProductRepository(snapshotPath);
+        Product mouseToStore = createProduct(2L, "Mouse", "99.99");
+        mouseToStore.setPriceUnits(9999L);
+        source.saveAll(List.of(mouseToStore, createProduct(1L, "Notebook", "5500.50")));
+        Product withoutPrice = createProduct(3L, "Cadeira", null);
+        withoutPrice.setDescription(null);
+        source.save(withoutPrice);
+        source.writeSnapshot(42L);
+
+        MappedSnapshotProductRepository restarted = new MappedSnapshotProductRepository(snapshotPath);
+        assertTrue(restarted.openSnapshot(42L));
+
+        assertEquals(3, restarted.size());
+        assertEquals(3L, restarted.maxId());
+        Product mouse = restarted.findById(2L);
+        assertEquals("Mouse", mouse.getName());
+        assertEquals(new BigDecimal("99.99"), mouse.getPrice());
+        assertEquals(9999L, mouse.getPriceUnits());
+        assertEquals("Eletrônicos", mouse.getClassification());
+        assertNull(restarted.findById(3L).getPrice());
+        assertNull(restarted.findById(3L).getDescription());
+        assertEquals(List.of(1L, 2L, 3L), restarted.streamFrom(null).map(Product::getId).toList());
+    }
+
+    @Test
+    void shouldRejectSnapshotWrittenFromAnotherSource() throws Exception {
+        Path snapshotPath = tempDir.resolve("products.snapshot");
+        MappedSnapshotProductRepository source = new MappedSnapshotProductRepository(snapshotPath);
+        source.save(createProduct(1L, "Notebook", "5500.50"));
+        source.writeSnapshot(1L);
+
+        assertFalse(new MappedSnapshotProductRepository(snapshotPath).openSnapshot(2L));
+        assertFalse(new MappedSnapshotProductRepository(tempDir.resolve("missing.snapshot")).openSnapshot(1L));
+    }
+
+    @Test
+    void shouldOverlaySavesOnTopOfSnapshot() throws Exception {
+        Path snapshotPath = tempDir.resolve("products.snapshot");
+        MappedSnapshotProductRepository source = new MappedSnapshotProductRepository(snapshotPath);
+        source.save(createProduct(1L, "Notebook", "5500.50"));
+        source.writeSnapshot(7L);
+
+        MappedSnapshotProductRepository restarted = new MappedSnapshotProductRepository(snapshotPath);
+        restarted.openSnapshot(7L);
+        restarted.save(createProduct(1L, "Notebook v2", "5000.00"));
+        restarted.save(createProduct(5L, "Teclado", "450.75"));
+
+        assertEquals("Notebook v2", restarted.findById(1L).getName());
+        assertEquals("Teclado", restarted.findById(5L).getName());
+        assertEquals(2, restarted.size());
+    }
+
+    private Product createProduct(long id, String name, String price) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        p.setPrice(price == null ? null : new BigDecimal(price));
+        p.setDescription("desc");
+        p.setImageUrl("http://img");
+        p.setClassification("Eletrônicos");
+        p.setSpecifications("Tipo: Óptico");
+        return p;
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.item_comparation.repository;
+
+import com.example.item_comparation.domain.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductRepositoryTest {
+
+    static Stream<Arguments> repositories() {
+        return Stream.of(
+                Arguments.of("heap", (Supplier<ProductRepository>) () -> new InMemoryProductRepository(4)),
+                Arguments.of("offheap", (Supplier<ProductRepository>) () -> new OffHeapProductRepository(512, 4))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    void shouldFindSavedProductById(String name, Supplier<ProductRepository> factory) {
+        ProductRepository repository = factory.get();
+        repository.save(createProduct(7L, "A"));
+
+        Product found = repository.findById(7L);
+        assertNotNull(found);
+        assertEquals("A", found.getName());
+        assertEquals(new BigDecimal("12.50"), found.getPrice());
+        assertNull(found.getDescription());
+        assertNull(repository.findById(8L));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    void shouldReplaceProductWhenSavedWithSameId(String name, Supplier<ProductRepository> factory) {
+        ProductRepository repository = factory.get();
+        repository.save(createProduct(1L, "old"));
+        repository.save(createProduct(1L, "new"));
+
+        assertEquals(1, repository.size());
+        assertEquals("new", repository.findById(1L).getName());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    void shouldStreamInIdOrderAcrossChunksWhenIdsArriveOutOfOrder(String name, Supplier<ProductRepository> factory) {
+        ProductRepository repository = factory.get();
+        List<Product> batch = new ArrayList<>();
+        for (long id = 1000; id >= 1; id--) {
+            batch.add(createProduct(id, "P" + id));
+        }
+        repository.saveAll(batch);
+
+        List<Long> all = repository.streamFrom(null).map(Product::getId).toList();
+        assertEquals(1000, all.size());
+        assertEquals(1L, all.get(0));
+        assertEquals(1000L, all.get(999));
+
+        List<Long> tail = repository.streamFrom(997L).map(Product::getId).toList();
+        assertEquals(List.of(998L, 999L, 1000L), tail);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    void shouldGrowEstimatedMemoryAsProductsAreStored(String name, Supplier<ProductRepository> factory) {
+        ProductRepository repository = factory.get();
+        long empty = repository.estimatedMemoryBytes();
+        assertTrue(empty > 0);
+
+        for (long id = 1; id <= 100; id++) {
+            repository.save(createProduct(id, "Product " + id));
+        }
+
+        assertTrue(repository.estimatedMemoryBytes() > empty);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    void shouldStoreFrozenCopyUnaffectedByCallerChanges(String name, Supplier<ProductRepository> factory) {
+        ProductRepository repository = factory.get();
+        Product product = createProduct(1L, "original");
+        repository.save(product);
+        product.setName("changed after save");
+
+        Product stored = repository.findById(1L);
+        assertEquals("original", stored.getName());
+        assertTrue(stored.isFrozen());
+        assertThrows(UnsupportedOperationException.class, () -> stored.setName("changed in store"));
+        assertEquals("original", repository.findById(1L).getName());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    void shouldKeepStreamingTheGenerationItStartedOn(String name, Supplier<ProductRepository> factory) {
+        ProductRepository repository = factory.get();
+        List<Product> initial = new ArrayList<>();
+        for (long id = 1; id <= 600; id++) {
+            initial.add(createProduct(id, "v1"));
+        }
+        repository.saveAll(initial);
+        var iterator = repository.streamFrom(null).iterator();
+        assertEquals(1L, iterator.next().getId());
+
+        // A bulk update and new products land while the listing is half read
+        List<Product> update = new ArrayList<>();
+        for (long id = 1; id <= 700; id++) {
+            update.add(createProduct(id, "v2"));
+        }
+        repository.saveAll(update);
+
+        int remaining = 0;
+        while (iterator.hasNext()) {
+            assertEquals("v1", iterator.next().getName());
+            remaining++;
+        }
+        assertEquals(599, remaining);
+        assertEquals(700, repository.size());
+        assertTrue(repository.streamFrom(null).allMatch(product -> product.getName().equals("v2")));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    void shouldApplyLastWriteWhenBatchRepeatsAnId(String name, Supplier<ProductRepository> factory) {
+        ProductRepository repository = factory.get();
+        repository.saveAll(List.of(createProduct(5L, "first"), createProduct(3L, "other"), createProduct(5L, "last")));
+
+        assertEquals(2, repository.size());
+        assertEquals("last", repository.findById(5L).getName());
+        assertEquals(List.of(3L, 5L), repository.streamFrom(null).map(Product::getId).toList());
+        assertEquals(repository.catalogVersion(), repository.versionOf(5L));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    void shouldDeleteProductsAndGiveSlotBackWhenReAdded(String name, Supplier<ProductRepository> factory) {
+        ProductRepository repository = factory.get();
+        for (long id = 1; id <= 5; id++) {
+            repository.save(createProduct(id, "P" + id));
+        }
+        var before = repository.streamFrom(null).iterator();
+
+        assertEquals(2, repository.deleteAll(new long[]{2L, 4L, 4L, 99L}));
+
+        assertNull(repository.findById(2L));
+        assertEquals(0L, repository.versionOf(4L));
+        assertEquals(3, repository.size());
+        assertEquals(List.of(1L, 3L, 5L), repository.streamFrom(null).map(Product::getId).toList());
+        assertEquals(0, repository.deleteAll(new long[]{2L}));
+        // A listing started before the delete still sees the products it started with
+        int listed = 0;
+        while (before.hasNext()) {
+            before.next();
+            listed++;
+        }
+        assertEquals(5, listed);
+
+        repository.save(createProduct(4L, "back"));
+        assertEquals("back", repository.findById(4L).getName());
+        assertEquals(List.of(1L, 3L, 4L, 5L), repository.streamFrom(null).map(Product::getId).toList());
+        assertEquals(5L, repository.maxId());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositories")
+    void shouldKeepPriceUnitsAlongsideTheProduct(String name, Supplier<ProductRepository> factory) {
+        ProductRepository repository = factory.get();
+        Product priced = createProduct(1L, "priced");
+        priced.setPriceUnits(1250L);
+        Product unpriced = createProduct(2L, "unpriced");
+        unpriced.setPrice(null);
+        repository.saveAll(List.of(priced, unpriced));
+
+        assertEquals(1250L, repository.findById(1L).getPriceUnits());
+        assertNull(repository.findById(2L).getPrice());
+        assertEquals(Product.NO_PRICE, repository.findById(2L).getPriceUnits());
+    }
+
+    @Test
+    void shouldCompactOffHeapChunksOnceMostOfTheirBytesAreDead() {
+        OffHeapProductRepository repository = new OffHeapProductRepository(512, 4);
+        for (long id = 1; id <= 10; id++) {
+            repository.save(createProduct(id, "P" + id));
+        }
+        var before = repository.streamFrom(null).iterator();
+        long liveBytes = repository.bytesUsed();
+
+        for (int round = 0; round < 50; round++) {
+            repository.save(createProduct(3L, "P3 v" + round));
+        }
+        repository.deleteAll(new long[]{5L});
+
+        assertTrue(repository.bytesUsed() < 2 * liveBytes + 512, "re-saves must not grow the chunks without bound");
+        assertTrue(repository.deadBytes() * 2 < repository.bytesUsed() || repository.deadBytes() < 512);
+        assertEquals("P3 v49", repository.findById(3L).getName());
+        assertNull(repository.findById(5L));
+        assertEquals(9, repository.streamFrom(null).count());
+        // A listing started before the compaction still reads the chunks it started on
+        assertEquals("P1", before.next().getName());
+
+        repository.save(createProduct(5L, "back"));
+        assertEquals("back", repository.findById(5L).getName());
+    }
+
+    @Test
+    void shouldNotParseSpecificationsWhenDecodingAFrozenProduct() {
+        OffHeapProductRepository repository = new OffHeapProductRepository(512, 4);
+        repository.save(createProduct(1L, "Mouse"));
+
+        Product decoded = repository.findById(1L);
+        assertTrue(decoded.isFrozen());
+        assertNull(ReflectionTestUtils.getField(decoded, "specificationAttributes"));
+        assertEquals(Map.of("Tipo", "Óptico"), decoded.getSpecificationAttributes());
+        assertSame(decoded.getSpecificationAttributes(), decoded.getSpecificationAttributes());
+    }
+
+    private Product createProduct(long id, String name) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        p.setPrice(new BigDecimal("12.50"));
+        p.setImageUrl("http://img");
+        p.setClassification("Eletrônicos");
+        p.setSpecifications("Tipo: Óptico");
+        return p;
+    }
+}
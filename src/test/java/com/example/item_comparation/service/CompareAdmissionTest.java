@@ -0,0 +1,73 @@
+package com.example.item_comparation.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompareAdmissionTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldChargeOneTokenPerIdAndRefillOverTime() {
+        // 10 ids per second, bursts of up to 20 ids
+        CompareAdmission admission = new CompareAdmission(10, 20, 100, 0, meterRegistry, now::get);
+
+        assertTrue(admission.tryAcquire("a", 15).admitted());
+        CompareAdmission.Decision refused = admission.tryAcquire("a", 10);
+        assertFalse(refused.admitted());
+        assertEquals(CompareAdmission.REASON_RATE_LIMIT, refused.reason());
+        // 5 tokens left, 10 needed: half a second of refill, rounded up to whole seconds
+        assertEquals(1L, refused.retryAfterSeconds());
+        assertTrue(admission.tryAcquire("b", 20).admitted(), "each client has its own bucket");
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(admission.tryAcquire("a", 10).admitted());
+        assertFalse(admission.tryAcquire("a", 1).admitted());
+        assertEquals(2.0, meterRegistry.get("products.compare.shed").tag("reason", "rate_limit").counter().count());
+    }
+
+    @Test
+    void shouldNotBankTokensBeyondTheBurstWhileIdle() {
+        CompareAdmission admission = new CompareAdmission(10, 20, 100, 0, meterRegistry, now::get);
+        now.addAndGet(TimeUnit.MINUTES.toNanos(10));
+
+        assertTrue(admission.tryAcquire("a", 20).admitted());
+        CompareAdmission.Decision refused = admission.tryAcquire("a", 20);
+        assertFalse(refused.admitted());
+        assertEquals(2L, refused.retryAfterSeconds());
+        // A call larger than the whole burst is charged the burst, so it can still get through once the bucket is full
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertTrue(admission.tryAcquire("a", 5_000).admitted());
+    }
+
+    @Test
+    void shouldShedBeyondMaxConcurrentUntilASlotIsReleased() {
+        CompareAdmission admission = new CompareAdmission(0, 0, 100, 2, meterRegistry, now::get);
+
+        assertSame(CompareAdmission.ADMITTED, admission.tryAcquire("a", 1));
+        assertSame(CompareAdmission.ADMITTED, admission.tryAcquire("b", 1));
+        CompareAdmission.Decision refused = admission.tryAcquire("c", 1);
+        assertEquals(CompareAdmission.REASON_CONCURRENCY, refused.reason());
+        assertEquals(1L, refused.retryAfterSeconds());
+        assertEquals(2, admission.inFlight());
+
+        admission.release();
+        assertTrue(admission.tryAcquire("c", 1).admitted());
+        assertEquals(1.0, meterRegistry.get("products.compare.shed").tag("reason", "concurrency").counter().count());
+        assertEquals(2.0, meterRegistry.get("products.compare.in.flight").gauge().value());
+    }
+
+    @Test
+    void shouldCountIdsFromSeparatorsIncludingEncodedCommas() {
+        assertEquals(1, CompareAdmission.countIds("42"));
+        assertEquals(3, CompareAdmission.countIds("1,2,3"));
+        assertEquals(3, CompareAdmission.countIds("1%2C2%2c3"));
+        assertEquals(2, CompareAdmission.countIds("1,%2"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.item_comparation.service;
+
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.exception.ProductNotFoundException;
+import com.example.item_comparation.repository.InMemoryProductRepository;
+import com.example.item_comparation.util.CsvIdParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompareJsonCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SimpleMeterRegistry meterRegistry;
+    private InMemoryProductRepository repository;
+    private ProductsService service;
+    private ProductJsonCache productJsonCache;
+    private CompareJsonCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        repository = new InMemoryProductRepository();
+        service = new ProductsService(new CsvIdParser(), repository, meterRegistry);
+        productJsonCache = new ProductJsonCache(service, objectMapper, meterRegistry, 100);
+        cache = new CompareJsonCache(service, productJsonCache, meterRegistry, 100, 4);
+        for (long id = 1; id <= 10; id++) {
+            service.save(product(id, "P" + id));
+        }
+    }
+
+    @Test
+    void shouldShareOneEntryPerIdSetAndRestoreEachRequestOrder() throws Exception {
+        assertEquals(List.of("P1", "P2"), names(cache.getCompareJson("1,2")));
+        assertEquals(List.of("P2", "P1", "P2"), names(cache.getCompareJson("2,1,2")));
+        assertEquals(List.of("P2", "P1"), names(cache.getCompareJson("2,1")));
+
+        assertEquals(1, cache.size());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "products.compare").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "products.compare").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void shouldAnswerWhatTheUncachedPathAnswers() {
+        cache.getCompareJson("3,1");
+
+        ProductJsonCache.ProductsJson cached = cache.getCompareJson("1,3,1");
+        ProductJsonCache.ProductsJson uncached = productJsonCache.getProductsJson(service.compareFromCsv("1,3,1"));
+
+        assertArrayEquals(uncached.bytes(), cached.bytes());
+        assertArrayEquals(uncached.versions(), cached.versions());
+    }
+
+    @Test
+    void shouldKeepEntryWhenAnotherProductIsWritten() throws Exception {
+        cache.getCompareJson("1,2");
+
+        service.save(product(5L, "P5 v2"));
+        service.deleteAll(List.of(6L));
+        assertEquals(List.of("P2", "P1"), names(cache.getCompareJson("2,1")));
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "products.compare").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void shouldNotKeepBytesReadBeforeTheProductJsonCacheWasInvalidated() throws Exception {
+        cache.getCompareJson("1,2");
+
+        // The store moved, but the per-product cache has not heard of it yet, as right after a save releases its lock
+        repository.save(product(2L, "P2 v2").freeze());
+        assertEquals(List.of("P1", "P2"), names(cache.getCompareJson("1,2")));
+
+        productJsonCache.onProductsSaved(List.of(repository.findById(2L)));
+        assertEquals(List.of("P1", "P2 v2"), names(cache.getCompareJson("1,2")));
+    }
+
+    @Test
+    void shouldReassembleOnceOneOfItsProductsChanged() throws Exception {
+        cache.getCompareJson("1,2");
+
+        service.save(product(2L, "P2 v2"));
+        assertEquals(List.of("P1", "P2 v2"), names(cache.getCompareJson("1,2")));
+
+        service.deleteAll(List.of(2L));
+        assertThrows(ProductNotFoundException.class, () -> cache.getCompareJson("1,2"));
+    }
+
+    @Test
+    void shouldNotCacheMissingIds() {
+        ProductNotFoundException exception = assertThrows(ProductNotFoundException.class,
+                () -> cache.getCompareJson("42,1,41"));
+
+        assertEquals("Product with ID 42 not found.", exception.getMessage());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldLeaveLargerComparisonsUncached() throws Exception {
+        assertEquals(List.of("P1", "P2", "P3", "P4", "P5"), names(cache.getCompareJson("1,2,3,4,5")));
+        assertEquals(0, cache.size());
+    }
+
+    private List<String> names(ProductJsonCache.ProductsJson json) throws Exception {
+        return List.of(objectMapper.readValue(json.bytes(), Product[].class)).stream().map(Product::getName).toList();
+    }
+
+    private static Product product(long id, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(BigDecimal.TEN);
+        return product;
+    }
+}
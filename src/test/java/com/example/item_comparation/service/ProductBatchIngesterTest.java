@@ -0,0 +1,72 @@
+package com.example.item_comparation.service;
+
+import com.example.item_comparation.domain.BatchIngestReport;
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.exception.ProductNotFoundException;
+import com.example.item_comparation.util.CsvIdParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductBatchIngesterTest {
+
+    private ProductsService service;
+    private ProductBatchIngester ingester;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProductsService(new CsvIdParser());
+        ingester = new ProductBatchIngester(service, new ObjectMapper(), 2);
+        for (long id = 1; id <= 3; id++) {
+            Product product = new Product();
+            product.setId(id);
+            product.setName("Produto " + id);
+            product.setPrice(BigDecimal.TEN);
+            service.save(product);
+        }
+    }
+
+    @Test
+    void shouldApplyUpsertsAndDeletesInOrderAndReportBadLinesWithoutFailingPayload() {
+        String payload = String.join("\n",
+                "{\"op\":\"upsert\",\"product\":{\"id\":1,\"name\":\"Produto 1\",\"price\":8.90}}",
+                "{\"op\":\"delete\",\"id\":2}",
+                "not json",
+                "{\"op\":\"upsert\",\"product\":{\"id\":4,\"name\":\"Novo\"}}",
+                "",
+                "{\"op\":\"delete\",\"id\":4}",
+                "{\"op\":\"rename\",\"id\":3}",
+                "{\"op\":\"delete\",\"id\":99}",
+                "{\"op\":\"upsert\",\"product\":{\"name\":\"sem id\"}}");
+
+        BatchIngestReport report = ingest(payload);
+
+        assertEquals(9, report.lines());
+        assertEquals(2, report.upserted());
+        assertEquals(2, report.deleted());
+        assertEquals(1, report.notFound());
+        assertEquals(3, report.errors());
+        assertEquals(List.of(3L, 7L, 9L), report.errorSamples().stream().map(BatchIngestReport.LineError::line).toList());
+        // Two valid operations per batch, bad lines charged to the batch they arrived in
+        assertEquals(3, report.batches().size());
+        assertEquals(5, report.batches().stream().mapToInt(BatchIngestReport.Batch::operations).sum() - report.errors());
+        assertTrue(report.batches().stream().allMatch(batch -> batch.operationsPerSecond() > 0));
+
+        assertEquals(new BigDecimal("8.90"), service.getProductById(1L).getPrice());
+        assertThrows(ProductNotFoundException.class, () -> service.getProductById(2L));
+        // Upserted then deleted in the same batch: order within the batch is kept
+        assertThrows(ProductNotFoundException.class, () -> service.getProductById(4L));
+        assertEquals(List.of(1L, 3L), service.getAllProducts().stream().map(Product::getId).toList());
+    }
+
+    private BatchIngestReport ingest(String payload) {
+        return ingester.ingest(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+}
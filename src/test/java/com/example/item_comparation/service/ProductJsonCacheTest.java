@@ -0,0 +1,81 @@
+package com.example.item_comparation.service;
+
+import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.exception.ProductNotFoundException;
+import com.example.item_comparation.util.CsvIdParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductJsonCacheTest {
+
+    private ProductsService service;
+    private SimpleMeterRegistry meterRegistry;
+    private ProductJsonCache cache;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProductsService(new CsvIdParser());
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ProductJsonCache(service, new ObjectMapper(), meterRegistry, 100);
+    }
+
+    @Test
+    void shouldServeCachedBytesAndCountHitsAndMisses() {
+        service.save(createProduct("A"));
+
+        ProductJsonCache.ProductJson first = cache.getProductJson(1L);
+        ProductJsonCache.ProductJson second = cache.getProductJson(1L);
+
+        assertSame(first, second);
+        assertEquals(service.getProductVersion(1L), first.version());
+        assertTrue(new String(first.bytes(), StandardCharsets.UTF_8).contains("\"name\":\"A\""));
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void shouldReserializeProductAfterSave() {
+        Product product = service.save(createProduct("A"));
+        cache.getProductJson(1L);
+
+        product.setName("B");
+        service.save(product);
+
+        ProductJsonCache.ProductJson json = cache.getProductJson(1L);
+        assertTrue(new String(json.bytes(), StandardCharsets.UTF_8).contains("\"name\":\"B\""));
+        assertEquals(service.getProductVersion(1L), json.version());
+    }
+
+    @Test
+    void shouldConcatenateCachedBytesIntoJsonArray() throws Exception {
+        service.saveAll(List.of(createProduct("A"), createProduct("B")));
+
+        ProductJsonCache.ProductsJson json = cache.getProductsJson(service.compare(new long[]{2L, 1L}));
+
+        Product[] products = new ObjectMapper().readValue(json.bytes(), Product[].class);
+        assertEquals(2, json.versions().length);
+        assertEquals(2L, products[0].getId());
+        assertEquals(1L, products[1].getId());
+    }
+
+    @Test
+    void shouldThrowProductNotFoundWhenProductIsMissing() {
+        assertThrows(ProductNotFoundException.class, () -> cache.getProductJson(99L));
+    }
+
+    private Product createProduct(String name) {
+        Product p = new Product();
+        p.setName(name);
+        p.setPrice(BigDecimal.valueOf(10.5));
+        p.setClassification("cat");
+        return p;
+    }
+}
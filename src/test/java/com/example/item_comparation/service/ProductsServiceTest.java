@@ -1,13 +1,30 @@
 package com.example.item_comparation.service;
 
+import com.example.item_comparation.domain.CompareResult;
+import com.example.item_comparation.domain.CompareTable;
+import com.example.item_comparation.domain.ComparisonDiff;
 import com.example.item_comparation.domain.Product;
+import com.example.item_comparation.exception.InvalidProductIdsException;
 import com.example.item_comparation.exception.ProductNotFoundException;
+import com.example.item_comparation.repository.CatalogReplacement;
+import com.example.item_comparation.repository.InMemoryProductRepository;
 import com.example.item_comparation.util.CsvIdParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -38,6 +55,68 @@ class ProductsServiceTest {
         assertEquals(2, all.size());
     }
 
+    @Test
+    void shouldNotReuseExplicitIdsWhenSaveAllMixesAssignedAndNewProducts() {
+        Product explicit = createProduct("A", 10.0);
+        explicit.setId(10L);
+        Product generated = createProduct("B", 20.0);
+        service.saveAll(List.of(explicit, generated));
+        Product next = service.save(createProduct("C", 30.0));
+        assertEquals(3, service.getAllProducts().size());
+        assertTrue(generated.getId() != 10L);
+        assertTrue(next.getId() > 10L);
+    }
+
+    @Test
+    void shouldAssignUniqueIdsWhenSavingConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Product> batch = new ArrayList<>();
+                    for (int i = 0; i < 500; i++) {
+                        service.save(createProduct("single", 1.0));
+                        batch.add(createProduct("bulk", 1.0));
+                    }
+                    service.saveAll(batch);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        List<Product> all = service.getAllProducts();
+        Set<Long> ids = new HashSet<>();
+        all.forEach(product -> ids.add(product.getId()));
+        assertEquals(4000, all.size());
+        assertEquals(4000, ids.size());
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentWhenSaveAllContainsNullProduct() {
+        List<Product> products = new ArrayList<>();
+        products.add(null);
+        assertThrows(IllegalArgumentException.class, () -> service.saveAll(products));
+    }
+
+    @Test
+    void shouldBumpProductAndCatalogVersionsOnSave() {
+        Product product = service.save(createProduct("A", 10.0));
+        service.save(createProduct("B", 20.0));
+        long productVersion = service.getProductVersion(1L);
+        long catalogVersion = service.getCatalogVersion();
+
+        service.save(product);
+
+        assertTrue(service.getProductVersion(1L) > productVersion);
+        assertTrue(service.getCatalogVersion() > catalogVersion);
+        assertEquals(0L, service.getProductVersion(99L));
+        assertArrayEquals(new long[]{service.getProductVersion(2L), 0L}, service.getProductVersions("2,99"));
+    }
+
     @Test
     void shouldReturnEmptyListWhenGetAllProductsAndRepositoryEmpty() {
         List<Product> allProducts = service.getAllProducts();
@@ -45,6 +124,21 @@ class ProductsServiceTest {
         assertTrue(allProducts.isEmpty());
     }
 
+    @Test
+    void shouldReturnProductsAfterCursorInIdOrderWhenGetProductsPage() {
+        createAndSaveProducts(5);
+        List<Product> firstPage = service.getProductsPage(null, 2);
+        List<Product> secondPage = service.getProductsPage(firstPage.get(1).getId(), 2);
+        assertEquals(List.of(1L, 2L), firstPage.stream().map(Product::getId).toList());
+        assertEquals(List.of(3L, 4L), secondPage.stream().map(Product::getId).toList());
+        assertEquals(1, service.getProductsPage(4L, 2).size());
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentWhenGetProductsPageWithInvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> service.getProductsPage(null, 0));
+    }
+
     @Test
     void shouldThrowProductNotFoundWhenGetProductByIdNotFound() {
         assertThrows(ProductNotFoundException.class, () -> service.getProductById(999L));
@@ -66,11 +160,318 @@ class ProductsServiceTest {
         assertEquals(2, compared.size());
     }
 
+    @Test
+    void shouldPreserveRequestOrderAndDuplicatesWhenCompare() {
+        createAndSaveProducts(3);
+        List<Product> compared = service.compareFromCsv("3,1,3,2");
+        assertEquals(List.of(3L, 1L, 3L, 2L), compared.stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void shouldThrowProductNotFoundForFirstMissingIdWhenCompare() {
+        createAndSaveProducts(2);
+        ProductNotFoundException ex = assertThrows(ProductNotFoundException.class, () -> service.compareFromCsv("1,9,8"));
+        assertEquals("Product with ID 9 not found.", ex.getMessage());
+        assertEquals(0, ex.getStackTrace().length);
+    }
+
+    @Test
+    void shouldRejectMalformedIdsWithParserMessageAndNoStackTrace() {
+        InvalidProductIdsException ex = assertThrows(InvalidProductIdsException.class, () -> service.compareFromCsv("1,abc"));
+        assertEquals("productIds contain non-numeric value: abc", ex.getMessage());
+        assertNull(ex.getCause());
+        assertEquals(0, ex.getStackTrace().length);
+    }
+
+    @Test
+    void shouldReturnFoundProductsAndMissingIdsWhenComparePartial() {
+        createAndSaveProducts(2);
+        CompareResult result = service.comparePartialFromCsv("2,9,1,9,7");
+        assertEquals(List.of(2L, 1L), result.getProducts().stream().map(Product::getId).toList());
+        assertEquals(List.of(9L, 7L), result.getMissingIds());
+    }
+
+    @Test
+    void shouldReturnOnlyDifferingAttributesWhenCompareDiff() {
+        Product notebook = createProduct("Notebook", 5500.50);
+        notebook.setSpecifications("Processador: Intel i7, RAM: 16GB, Cores: Preto, Prata");
+        Product other = createProduct("Notebook Pro", 7000.0);
+        other.setSpecifications("Processador: Intel i7, RAM: 32GB");
+        service.saveAll(List.of(notebook, other));
+
+        ComparisonDiff diff = service.compareDiffFromCsv("1,2,1");
+
+        assertEquals(List.of(1L, 2L), diff.getProductIds());
+        assertEquals(0, BigDecimal.valueOf(5500.50).compareTo(diff.getMinPrice()));
+        assertEquals(0, BigDecimal.valueOf(7000.0).compareTo(diff.getMaxPrice()));
+        assertTrue(diff.getAttributes().containsKey("price"));
+        assertFalse(diff.getAttributes().containsKey("classification"));
+        assertFalse(diff.getSpecifications().containsKey("Processador"));
+        assertEquals(Arrays.asList("16GB", "32GB"), diff.getSpecifications().get("RAM"));
+        assertEquals(Arrays.asList("Preto, Prata", null), diff.getSpecifications().get("Cores"));
+    }
+
+    @Test
+    void shouldRecordBatchSizeAndDistinctHitsAndMissesWhenComparing() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        service = new ProductsService(new CsvIdParser(), new InMemoryProductRepository(), meterRegistry);
+        createAndSaveProducts(3);
+
+        service.comparePartial(new long[]{1L, 2L, 2L, 9L});
+        service.compare(new long[]{3L});
+
+        assertEquals(2, meterRegistry.get("products.compare.batch.size").summary().count());
+        assertEquals(5.0, meterRegistry.get("products.compare.batch.size").summary().totalAmount());
+        assertEquals(3.0, meterRegistry.get("products.compare.ids").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("products.compare.ids").tag("result", "miss").counter().count());
+        assertEquals(2, meterRegistry.get("products.compare.lookup").timer().count());
+    }
+
+    @Test
+    void shouldFilterByClassificationAndPriceBandInRequestedOrder() {
+        service.saveAll(List.of(
+                createProduct("Notebook", 5000.0, "Eletrônicos"),
+                createProduct("Mouse", 100.0, "Eletrônicos"),
+                createProduct("Cadeira", 800.0, "Móveis"),
+                createProduct("Monitor", 1500.0, "eletrônicos "),
+                createProduct("Cabo", null, "Eletrônicos")));
+
+        List<Product> byId = service.findProducts("Eletrônicos", null, null, null, null, null);
+        assertEquals(List.of(1L, 2L, 4L, 5L), byId.stream().map(Product::getId).toList());
+
+        List<Product> byPrice = service.findProducts("ELETRÔNICOS", null, null, "price", null, null);
+        assertEquals(List.of("Mouse", "Monitor", "Notebook", "Cabo"), byPrice.stream().map(Product::getName).toList());
+
+        List<Product> band = service.findProducts(null, BigDecimal.valueOf(100), BigDecimal.valueOf(1500), "price", null, 2);
+        assertEquals(List.of("Mouse", "Cadeira"), band.stream().map(Product::getName).toList());
+
+        List<Product> afterCursor = service.findProducts(null, BigDecimal.valueOf(500), null, null, "1", null);
+        assertEquals(List.of(3L, 4L), afterCursor.stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void shouldPagePriceOrderedListingThroughKeysetCursor() {
+        service.saveAll(List.of(
+                createProduct("Teclado", 100.0, "Eletrônicos"),
+                createProduct("Mouse", 100.0, "Eletrônicos"),
+                createProduct("Monitor", 1500.0, "Eletrônicos"),
+                createProduct("Cabo", null, "Eletrônicos"),
+                createProduct("Hub", null, "Eletrônicos")));
+
+        List<String> names = new ArrayList<>();
+        String after = null;
+        List<Product> page;
+        do {
+            page = service.findProducts("Eletrônicos", null, null, "price", after, 2);
+            page.forEach(product -> names.add(product.getName()));
+            after = page.isEmpty() ? after : service.cursorAfter(page.get(page.size() - 1), "price");
+        } while (page.size() == 2);
+
+        assertEquals(List.of("Teclado", "Mouse", "Monitor", "Cabo", "Hub"), names);
+        assertEquals("10000:2", service.cursorAfter(service.getProductById(2L), "price"));
+        assertEquals(List.of("Monitor"), service.findProducts(null, BigDecimal.ONE, BigDecimal.valueOf(2000), "price", "10000:2", null)
+                .stream().map(Product::getName).toList());
+    }
+
+    @Test
+    void shouldKeepWritesMadeWhileACatalogReplacementIsStaged() {
+        service.saveAll(List.of(
+                createProduct("Mouse", 100.0, "Eletrônicos"),
+                createProduct("Teclado", 200.0, "Eletrônicos"),
+                createProduct("Monitor", 1500.0, "Eletrônicos")));
+        List<Product> files = service.getAllProducts().stream().map(Product::copy).toList();
+
+        CatalogReplacement replacement = service.beginCatalogReplacement();
+        replacement.addAll(files.subList(0, 2));
+        Product repriced = service.getProductById(1L).copy();
+        repriced.setPrice(BigDecimal.valueOf(99.0));
+        service.save(repriced);
+        service.deleteAll(List.of(2L));
+        Product added = service.save(createProduct("Cabo", 10.0, "Eletrônicos"));
+        replacement.addAll(files.subList(2, 3));
+        replacement.commit();
+
+        assertEquals(List.of(1L, 3L, added.getId()), service.getAllProducts().stream().map(Product::getId).toList());
+        assertEquals(0, BigDecimal.valueOf(99.0).compareTo(service.getProductById(1L).getPrice()));
+        assertEquals(List.of("Cabo", "Mouse", "Monitor"), service.findProducts("Eletrônicos", null, null, "price", null, null)
+                .stream().map(Product::getName).toList());
+    }
+
+    @Test
+    void shouldMoveProductBetweenIndexesWhenResaved() {
+        Product product = service.save(createProduct("Mouse", 100.0, "Eletrônicos"));
+
+        Product changed = createProduct("Mouse", 2000.0, "Periféricos");
+        changed.setId(product.getId());
+        service.save(changed);
+
+        assertTrue(service.findProducts("Eletrônicos", null, null, null, null, null).isEmpty());
+        assertTrue(service.findProducts(null, null, BigDecimal.valueOf(1000), null, null, null).isEmpty());
+        assertEquals(1, service.findProducts("Periféricos", BigDecimal.valueOf(1000), null, "price", null, null).size());
+    }
+
+    @Test
+    void shouldRebuildIndexesAndIdSequenceWhenSyncingWithPrefilledStore() {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        Product stored = createProduct("Cadeira", 800.0, "Móveis");
+        stored.setId(10L);
+        repository.save(stored);
+        service = new ProductsService(new CsvIdParser(), repository);
+
+        service.syncWithStore();
+
+        assertEquals(List.of(10L), service.findProducts("Móveis", null, null, null, null, null).stream().map(Product::getId).toList());
+        assertEquals(11L, service.save(createProduct("Mesa", 300.0)).getId());
+    }
+
+    @Test
+    void shouldKeepWritingWhileIndexesAreRebuiltAndApplyThoseWritesToThem() throws Exception {
+        CountDownLatch indexing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryProductRepository repository = new InMemoryProductRepository() {
+            @Override
+            public Stream<Product> streamFrom(Long afterId) {
+                // Holds the rebuild inside the catalog scan until the test has written
+                return super.streamFrom(afterId).peek(product -> {
+                    indexing.countDown();
+                    await(release);
+                });
+            }
+        };
+        Product kept = createProduct("Cadeira", 800.0, "Móveis");
+        kept.setId(1L);
+        Product removed = createProduct("Mesa", 300.0, "Móveis");
+        removed.setId(2L);
+        repository.saveAll(List.of(kept, removed));
+        service = new ProductsService(new CsvIdParser(), repository);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> sync = executor.submit(service::syncWithStore);
+            assertTrue(indexing.await(5, TimeUnit.SECONDS));
+            // Both writes finish while the rebuild is still scanning the catalog
+            Future<Product> save = executor.submit(() -> service.save(createProduct("Sofá", 2000.0, "Móveis")));
+            Product added = save.get(2, TimeUnit.SECONDS);
+            executor.submit(() -> service.deleteAll(List.of(2L))).get(2, TimeUnit.SECONDS);
+            assertFalse(sync.isDone());
+            release.countDown();
+            sync.get(5, TimeUnit.SECONDS);
+
+            assertEquals(List.of(1L, added.getId()), service.findProducts("Móveis", null, null, null, null, null)
+                    .stream().map(Product::getId).toList());
+            assertEquals(List.of(added.getId()), service.search("sofa", 10).stream().map(Product::getId).toList());
+            assertTrue(service.search("mesa", 10).isEmpty());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRankSearchResultsIgnoringAccentsAndMatchingLastTermAsPrefix() {
+        Product notebook = createProduct("Notebook Gamer", 5000.0, "Eletrônicos");
+        notebook.setDescription("Notebook com placa de vídeo dedicada");
+        Product mouse = createProduct("Mouse", 100.0, "Eletrônicos");
+        mouse.setDescription("Mouse para notebook");
+        Product cadeira = createProduct("Cadeira Gamer", 800.0, "Móveis");
+        cadeira.setSpecifications("Material: Couro, Reclinável: Sim");
+        service.saveAll(List.of(notebook, mouse, cadeira));
+
+        assertEquals(List.of("Notebook Gamer", "Mouse"), service.search("notebook", 10).stream().map(Product::getName).toList());
+        assertEquals(List.of("Notebook Gamer", "Cadeira Gamer", "Mouse"), service.search("gamer note", 10).stream().map(Product::getName).toList());
+        assertEquals(List.of("Notebook Gamer"), service.search("VIDEO", 10).stream().map(Product::getName).toList());
+        assertEquals(List.of("Cadeira Gamer"), service.search("reclinavel", 10).stream().map(Product::getName).toList());
+        assertEquals(1, service.search("notebook", 1).size());
+    }
+
+    @Test
+    void shouldUpdateSearchIndexWhenProductIsResaved() {
+        Product product = service.save(createProduct("Monitor Ultra HD", 1500.0, "Eletrônicos"));
+
+        Product renamed = createProduct("Televisor", 1500.0, "Eletrônicos");
+        renamed.setId(product.getId());
+        service.save(renamed);
+
+        assertTrue(service.search("monitor", 10).isEmpty());
+        assertEquals(product.getId(), service.search("televisor", 10).get(0).getId());
+        assertThrows(IllegalArgumentException.class, () -> service.search(" ", 10));
+        assertThrows(IllegalArgumentException.class, () -> service.search("tv", ProductsService.MAX_SEARCH_RESULTS + 1));
+    }
+
+    @Test
+    void shouldBuildCompareTableWithOneColumnPerAttributeInRequestOrder() {
+        Product first = createProduct("Notebook", 3000.0);
+        first.setSpecifications("RAM: 8GB");
+        Product second = createProduct("Tablet", 1500.0);
+        second.setSpecifications("Tela: 10 polegadas");
+        long firstId = service.save(first).getId();
+        long secondId = service.save(second).getId();
+
+        CompareTable table = service.compareTableFromCsv(secondId + "," + firstId + "," + secondId);
+
+        assertEquals(List.of(secondId, firstId), table.id());
+        assertEquals(List.of("Tablet", "Notebook"), table.name());
+        assertEquals(0, new BigDecimal("1500.0").compareTo(table.price().get(0)));
+        assertEquals(Arrays.asList(null, "8GB"), table.specifications().get("RAM"));
+        assertEquals(Arrays.asList("10 polegadas", null), table.specifications().get("Tela"));
+    }
+
+    @Test
+    void shouldRemoveDeletedProductsFromStoreAndIndexes() {
+        Product kept = service.save(createProduct("Monitor Ultra HD", 1500.0, "Eletrônicos"));
+        Product deleted = service.save(createProduct("Monitor Curvo", 2000.0, "Eletrônicos"));
+
+        assertEquals(1, service.deleteAll(List.of(deleted.getId(), 999L)));
+
+        assertThrows(ProductNotFoundException.class, () -> service.getProductById(deleted.getId()));
+        assertEquals(List.of(kept.getId()), service.search("monitor", 10).stream().map(Product::getId).toList());
+        assertEquals(List.of(kept.getId()), service.findProducts("eletrônicos", null, null, "price", null, null)
+                .stream().map(Product::getId).toList());
+        assertEquals(0, service.deleteAll(List.of(deleted.getId())));
+    }
+
+    @Test
+    void shouldRejectOutOfScalePricesBeforeStoringAnything() {
+        Product product = createProduct("Mouse", 0.0);
+        product.setPrice(new BigDecimal("99.999"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.save(product));
+        assertThrows(IllegalArgumentException.class, () -> service.saveAll(List.of(createProduct("Cabo", 10.0), product)));
+        assertTrue(service.getAllProducts().isEmpty());
+    }
+
+    @Test
+    void shouldFilterOnPriceUnitsWithBoundsFinerThanTheScale() {
+        Product mouse = service.save(createProduct("Mouse", 100.0, "Eletrônicos"));
+        service.save(createProduct("Teclado", 100.01, "Eletrônicos"));
+
+        assertEquals(10_000L, mouse.getPriceUnits());
+        assertEquals(List.of("Mouse"), service.findProducts(null, new BigDecimal("99.999"), new BigDecimal("100.009"), "price", null, null)
+                .stream().map(Product::getName).toList());
+        assertTrue(service.findProducts(null, new BigDecimal("100.001"), new BigDecimal("100.009"), null, null, null).isEmpty());
+    }
+
+    @Test
+    void shouldRejectInvalidFilters() {
+        assertThrows(IllegalArgumentException.class, () -> service.findProducts(null, null, null, "name", null, null));
+        assertThrows(IllegalArgumentException.class, () -> service.findProducts(null, BigDecimal.TEN, BigDecimal.ONE, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> service.findProducts(null, null, null, "price", "1", null));
+        assertThrows(IllegalArgumentException.class, () -> service.findProducts(null, null, null, null, "10:1", null));
+    }
+
     @Test
     void shouldThrowIllegalArgumentWhenCompareFromCsvWithInvalidCsv() {
         assertThrows(IllegalArgumentException.class, () -> service.compareFromCsv("1,a,3"));
     }
 
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private Product createProduct(String name, double price) {
         Product p = new Product();
         p.setName(name);
@@ -82,6 +483,13 @@ class ProductsServiceTest {
         return p;
     }
 
+    private Product createProduct(String name, Double price, String classification) {
+        Product p = createProduct(name, 0.0);
+        p.setPrice(price == null ? null : BigDecimal.valueOf(price));
+        p.setClassification(classification);
+        return p;
+    }
+
     private void createAndSaveProducts(int count) {
         for (int i = 1; i <= count; i++) {
             Product product = new Product();
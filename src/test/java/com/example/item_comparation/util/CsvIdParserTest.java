@@ -40,4 +40,24 @@ class CsvIdParserTest {
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> parser.parseToLongList("1,a,3"));
         assertTrue(ex.getMessage().contains("non-numeric") || ex.getMessage().toLowerCase().contains("non"));
     }
+
+    @Test
+    void shouldParseSignedIdsIntoPrimitiveArray() {
+        assertArrayEquals(new long[]{-1L, 2L, Long.MAX_VALUE}, parser.parseToLongArray("-1,+2," + Long.MAX_VALUE));
+    }
+
+    @Test
+    void shouldThrowNonNumericWhenIdOverflowsLong() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> parser.parseToLongArray("9223372036854775808"));
+        assertEquals("productIds contain non-numeric value: 9223372036854775808", ex.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> parser.parseToLongArray("1,-,2"));
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenLimitsAreExceeded() {
+        CsvIdParser limited = new CsvIdParser(2, 3);
+        assertArrayEquals(new long[]{1L, 999L}, limited.parseToLongArray("1, 999"));
+        assertThrows(IllegalArgumentException.class, () -> limited.parseToLongArray("1,2,3"));
+        assertThrows(IllegalArgumentException.class, () -> limited.parseToLongArray("1000"));
+    }
 }
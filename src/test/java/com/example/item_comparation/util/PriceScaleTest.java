@@ -0,0 +1,54 @@
+package com.example.item_comparation.util;
+
+import com.example.item_comparation.domain.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceScaleTest {
+
+    private final PriceScale cents = new PriceScale();
+
+    @Test
+    void shouldConvertPricesToUnitsExactlyAndBack() {
+        assertEquals(1050L, cents.toUnits(new BigDecimal("10.5")));
+        assertEquals(1050L, cents.toUnits(new BigDecimal("10.500")));
+        assertEquals(100_000L, cents.toUnits(new BigDecimal("1E+3")));
+        assertEquals(Product.NO_PRICE, cents.toUnits(null));
+        assertEquals(new BigDecimal("10.50"), cents.toPrice(1050L));
+        assertNull(cents.toPrice(Product.NO_PRICE));
+    }
+
+    @Test
+    void shouldRejectPricesThatDoNotFitTheScale() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> cents.toUnits(new BigDecimal("10.005")));
+        assertEquals("price 10.005 has more than 2 decimal places", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> cents.toUnits(new BigDecimal("1E+30")));
+        assertThrows(IllegalArgumentException.class, () -> new PriceScale(0).toUnits(new BigDecimal("0.5")));
+        assertThrows(IllegalArgumentException.class, () -> new PriceScale(-1));
+    }
+
+    @Test
+    void shouldRoundQueryBoundsTowardsTheUnitsThatStillSatisfyThem() {
+        assertEquals(1001L, cents.lowerBound(new BigDecimal("10.001")));
+        assertEquals(1000L, cents.upperBound(new BigDecimal("10.009")));
+        assertEquals(-1001L, cents.upperBound(new BigDecimal("-10.001")));
+        assertEquals(Product.NO_PRICE - 1, cents.upperBound(new BigDecimal("1E+30")));
+        assertEquals(Long.MIN_VALUE + 1, cents.lowerBound(new BigDecimal("-1E+30")));
+    }
+
+    @Test
+    void shouldPreferUnitsStoredWithTheProduct() {
+        Product product = new Product();
+        product.setPrice(new BigDecimal("3.25"));
+        assertEquals(325L, cents.unitsOf(product));
+
+        product.setPriceUnits(325L);
+        product.setPrice(new BigDecimal("4"));
+        // A new price drops the units it had, they are worked out again from the price
+        assertEquals(400L, cents.unitsOf(product));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.item_comparation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchTokenizerTest {
+
+    @Test
+    void shouldFoldAccentsAndCaseAndSplitOnPunctuation() {
+        assertEquals(List.of("eletronicos", "cafe", "16gb", "ram"), SearchTokenizer.tokenize("Eletrônicos: Café, 16GB-RAM"));
+    }
+
+    @Test
+    void shouldDropStopwords() {
+        assertEquals(List.of("mesa", "jantar", "cadeiras"), SearchTokenizer.tokenize("Mesa de jantar com cadeiras"));
+    }
+
+    @Test
+    void shouldReturnNoTermsForBlankText() {
+        assertTrue(SearchTokenizer.tokenize(null).isEmpty());
+        assertTrue(SearchTokenizer.tokenize(" , ; ").isEmpty());
+    }
+}